@@ -0,0 +1,93 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The Connect4Board operations every search does at every node: move()
+ * and unmove(), get(), and copying a board.  None of these should
+ * allocate except copying into a new board, so gc.alloc.rate.norm
+ * should be 0 for all but copyConstructor.
+ *
+ * @author Mickie Newman
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark
+{
+    @Param({"0", "8", "16", "24"})
+    public int plies;
+
+    private Object board;
+    private Object target;
+    private int[] validCols;
+
+    @Setup
+    public void setup() throws Throwable {
+        board = Positions.board(plies);
+        target = (Object) Game.NEW_BOARD.invokeExact(Positions.ROWS,Positions.COLS);
+        int n = 0;
+        int[] cols = new int [Positions.COLS];
+        for (int col=0; col<Positions.COLS; col++) {
+            if ((boolean) Game.IS_VALID_MOVE.invokeExact(board,col)) {
+                cols[n++] = col;
+            }
+        }
+        validCols = Arrays.copyOf(cols,n);
+    }
+
+    // Every legal move made and taken back, as at one search node.
+    @Benchmark
+    public int moveUnmove() throws Throwable {
+        Object b = board;
+        int id = Positions.toMove(plies);
+        int sum = 0;
+        for (int col : validCols) {
+            sum += (int) Game.MOVE.invokeExact(b,col,id);
+            sum += (int) Game.UNMOVE.invokeExact(b,col,id);
+        }
+        return sum;
+    }
+
+    // Every cell read once, as a full-board evaluation does.
+    @Benchmark
+    public void getAll (Blackhole bh) throws Throwable {
+        Object b = board;
+        for (int row=0; row<Positions.ROWS; row++) {
+            for (int col=0; col<Positions.COLS; col++) {
+                bh.consume((int) Game.GET.invokeExact(b,row,col));
+            }
+        }
+    }
+
+    // new Connect4Board(board)
+    @Benchmark
+    public Object copyConstructor() throws Throwable {
+        return (Object) Game.COPY_BOARD.invokeExact(board);
+    }
+
+    // Connect4Board.copy(board) into a board that already exists.
+    @Benchmark
+    public Object copyInto() throws Throwable {
+        Game.COPY_INTO.invokeExact(target,board);
+        return target;
+    }
+}
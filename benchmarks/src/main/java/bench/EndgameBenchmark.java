@@ -0,0 +1,63 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EndgameSolver from canonical positions with 22, 20 and 16 empty
+ * cells, the last being the players' default connect4.solver.empty.
+ * (The positions in between are decided in a few nodes.)  Each
+ * solve gets a new solver so that it starts with an empty table.
+ * Results are solves per second, and nodes per second through the
+ * "nodes" counter.
+ *
+ * @author Mickie Newman
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndgameBenchmark
+{
+    @Param({"20", "22", "26"})
+    public int plies;
+
+    private Object board;
+    private int id;
+    private Object arb;
+    private Object solver;
+
+    @Setup
+    public void setup() throws Throwable {
+        board = Positions.board(plies);
+        id = Positions.toMove(plies);
+        arb = (Object) Game.NEW_ARBITRATOR.invokeExact();
+    }
+
+    @Setup(Level.Invocation)
+    public void newSolver() throws Throwable {
+        solver = (Object) Game.NEW_SOLVER.invokeExact(Positions.ROWS,Positions.COLS);
+    }
+
+    @Benchmark
+    public int solve (SearchBenchmark.Nodes counter) throws Throwable {
+        int result = (int) Game.SOLVE.invokeExact(solver,board,id,arb);
+        counter.nodes += (long) Game.SOLVER_NODES.invokeExact(solver);
+        return result;
+    }
+}
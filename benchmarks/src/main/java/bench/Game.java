@@ -0,0 +1,220 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Handles on the game classes.  The game is written in the default
+ * package, which code in a named package cannot name, and JMH will not
+ * generate benchmarks in the default package.  So the benchmarks reach
+ * the game through these method handles.  Each one is a static final
+ * constant with Object in place of the game types and is called with
+ * invokeExact(), which the JIT compiles down to a direct call.
+ *
+ * @author Mickie Newman
+ *
+ */
+final class Game
+{
+    // Connect4Board
+    static final MethodHandle NEW_BOARD;        // (int rows, int cols) -> board
+    static final MethodHandle COPY_BOARD;       // (board) -> new board
+    static final MethodHandle COPY_INTO;        // (board, that) -> void
+    static final MethodHandle MOVE;             // (board, int col, int id) -> int
+    static final MethodHandle UNMOVE;           // (board, int col, int id) -> int
+    static final MethodHandle GET;              // (board, int row, int col) -> int
+    static final MethodHandle IS_VALID_MOVE;    // (board, int col) -> boolean
+    static final MethodHandle HAS_WINNER;       // (board) -> boolean
+    static final MethodHandle IS_FULL;          // (board) -> boolean
+    static final MethodHandle NUM_EMPTY_CELLS;  // (board) -> int
+
+    // Connect4Game, created with no GUI.
+    static final MethodHandle NEW_GAME;         // (int rows, int cols, String game) -> game
+    static final MethodHandle CALC_WINNER;      // (game, board) -> int
+    static final MethodHandle CALC_SCORE;       // (game, board, int id) -> int
+
+    // Player
+    static final MethodHandle INIT;             // (player, int id, int msec, int rows, int cols) -> void
+
+    // Arbitrator, with no deadline.
+    static final MethodHandle NEW_ARBITRATOR;   // () -> arbitrator
+
+    // SearchEngine
+    static final MethodHandle NEW_TT;           // (int megabytes) -> table
+    static final MethodHandle CLEAR_TT;         // (table) -> void
+    static final MethodHandle NEW_ENGINE;       // (int rows, int cols, table) -> engine
+    static final MethodHandle SEARCH;           // (engine, board, int id, int depth, arbitrator) -> int
+    static final MethodHandle ENGINE_NODES;     // (engine) -> long
+
+    // Evaluator
+    static final MethodHandle NEW_THREAT_EVAL;  // (int rows, int cols) -> evaluator
+    static final MethodHandle EVAL_RESET;       // (evaluator, board) -> void
+    static final MethodHandle EVAL_MOVE;        // (evaluator, int row, int col, int id) -> void
+    static final MethodHandle EVAL_UNMOVE;      // (evaluator, int row, int col, int id) -> void
+    static final MethodHandle EVALUATE;         // (evaluator, board, int id) -> int
+
+    // EndgameSolver
+    static final MethodHandle NEW_SOLVER;       // (int rows, int cols) -> solver
+    static final MethodHandle SOLVE;            // (solver, board, int id, arbitrator) -> int
+    static final MethodHandle SOLVER_NODES;     // (solver) -> long
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> board = Class.forName("Connect4Board");
+            Class<?> game = Class.forName("Connect4Game");
+            Class<?> gui = Class.forName("Connect4");
+            Class<?> player = Class.forName("Player");
+            Class<?> arbitrator = Class.forName("Arbitrator");
+            Class<?> tt = Class.forName("TranspositionTable");
+            Class<?> engine = Class.forName("SearchEngine");
+            Class<?> evaluator = Class.forName("Evaluator");
+            Class<?> solver = Class.forName("EndgameSolver");
+
+            NEW_BOARD = generic(lookup.findConstructor(board,
+                MethodType.methodType(void.class,int.class,int.class)));
+            COPY_BOARD = generic(lookup.findConstructor(board,
+                MethodType.methodType(void.class,board)));
+            COPY_INTO = generic(lookup.findVirtual(board,"copy",
+                MethodType.methodType(void.class,board)));
+            MOVE = generic(lookup.findVirtual(board,"move",
+                MethodType.methodType(int.class,int.class,int.class)));
+            UNMOVE = generic(lookup.findVirtual(board,"unmove",
+                MethodType.methodType(int.class,int.class,int.class)));
+            GET = generic(lookup.findVirtual(board,"get",
+                MethodType.methodType(int.class,int.class,int.class)));
+            IS_VALID_MOVE = generic(lookup.findVirtual(board,"isValidMove",
+                MethodType.methodType(boolean.class,int.class)));
+            HAS_WINNER = generic(lookup.findVirtual(board,"hasWinner",
+                MethodType.methodType(boolean.class)));
+            IS_FULL = generic(lookup.findVirtual(board,"isFull",
+                MethodType.methodType(boolean.class)));
+            NUM_EMPTY_CELLS = generic(lookup.findVirtual(board,"numEmptyCells",
+                MethodType.methodType(int.class)));
+
+            MethodHandle newGame = lookup.findConstructor(game,
+                MethodType.methodType(void.class,int.class,int.class,String.class,
+                                      int.class,int.class,int.class,boolean.class,
+                                      String.class,String.class,gui));
+            // msec 1000, 1 game, no random moves, no match play, default
+            // players and no GUI.
+            newGame = MethodHandles.insertArguments(newGame,3,1000,1,0,false,null,null,null);
+            NEW_GAME = generic(newGame);
+            CALC_WINNER = generic(lookup.findVirtual(game,"calcWinner",
+                MethodType.methodType(int.class,board)));
+            CALC_SCORE = generic(lookup.findVirtual(game,"calcScore",
+                MethodType.methodType(int.class,board,int.class)));
+
+            INIT = generic(lookup.findVirtual(player,"init",
+                MethodType.methodType(void.class,int.class,int.class,int.class,int.class)));
+
+            NEW_ARBITRATOR = generic(lookup.findConstructor(arbitrator,
+                MethodType.methodType(void.class)));
+
+            NEW_TT = generic(lookup.findConstructor(tt,
+                MethodType.methodType(void.class,int.class)));
+            CLEAR_TT = generic(lookup.findVirtual(tt,"clear",
+                MethodType.methodType(void.class)));
+            NEW_ENGINE = generic(lookup.findConstructor(engine,
+                MethodType.methodType(void.class,int.class,int.class,tt)));
+            SEARCH = generic(lookup.findVirtual(engine,"search",
+                MethodType.methodType(int.class,board,int.class,int.class,arbitrator)));
+            ENGINE_NODES = generic(lookup.findVirtual(engine,"getNodes",
+                MethodType.methodType(long.class)));
+
+            NEW_THREAT_EVAL = generic(lookup.findConstructor(Class.forName("ThreatEvaluator"),
+                MethodType.methodType(void.class,int.class,int.class))
+                .asType(MethodType.methodType(evaluator,int.class,int.class)));
+            EVAL_RESET = generic(lookup.findVirtual(evaluator,"reset",
+                MethodType.methodType(void.class,board)));
+            EVAL_MOVE = generic(lookup.findVirtual(evaluator,"move",
+                MethodType.methodType(void.class,int.class,int.class,int.class)));
+            EVAL_UNMOVE = generic(lookup.findVirtual(evaluator,"unmove",
+                MethodType.methodType(void.class,int.class,int.class,int.class)));
+            EVALUATE = generic(lookup.findVirtual(evaluator,"evaluate",
+                MethodType.methodType(int.class,board,int.class)));
+
+            NEW_SOLVER = generic(lookup.findConstructor(solver,
+                MethodType.methodType(void.class,int.class,int.class)));
+            SOLVE = generic(lookup.findVirtual(solver,"solve",
+                MethodType.methodType(int.class,board,int.class,arbitrator)));
+            SOLVER_NODES = generic(lookup.findVirtual(solver,"getNodes",
+                MethodType.methodType(long.class)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Game() {
+    }
+
+    /**
+     * Create a player by class name.
+     * @param className The player's class, such as "MinimaxPlayer"
+     * @return The new player, not yet initialized
+     */
+    static Object newPlayer (String className) throws ReflectiveOperationException {
+        return Class.forName(className).getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * Get a player's calcScore(Connect4Board, int).
+     * @param className The player's class
+     * @return (player, board, int id) -> int
+     */
+    static MethodHandle calcScore (String className) throws ReflectiveOperationException {
+        Class<?> c = Class.forName(className);
+        return generic(MethodHandles.lookup().findVirtual(c,"calcScore",
+            MethodType.methodType(int.class,Class.forName("Connect4Board"),int.class)));
+    }
+
+    /**
+     * Get a private method of a player.  Used to time the players' own
+     * searches, which are not part of the Player interface.
+     * @param className The player's class
+     * @param name The method name
+     * @param type The method type, using the real parameter types
+     * @return The method with Object in place of the game types
+     */
+    static MethodHandle privateMethod (String className, String name, MethodType type)
+        throws ReflectiveOperationException {
+        Class<?> c = Class.forName(className);
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(c,MethodHandles.lookup());
+        return generic(lookup.findVirtual(c,name,type));
+    }
+
+    /**
+     * Get a getter for a private field of a player.
+     * @param className The player's class
+     * @param name The field name
+     * @param type The field type
+     * @return (player) -> the field
+     */
+    static MethodHandle privateGetter (String className, String name, Class<?> type)
+        throws ReflectiveOperationException {
+        Class<?> c = Class.forName(className);
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(c,MethodHandles.lookup());
+        return generic(lookup.findGetter(c,name,type));
+    }
+
+    // The same method with Object in place of every game type, so that
+    // it can be called with invokeExact() from code that cannot name
+    // the game classes.
+    private static MethodHandle generic (MethodHandle mh) {
+        MethodType t = mh.type();
+        for (int i=0; i<t.parameterCount(); i++) {
+            if (isGameType(t.parameterType(i))) {
+                t = t.changeParameterType(i,Object.class);
+            }
+        }
+        if (isGameType(t.returnType())) {
+            t = t.changeReturnType(Object.class);
+        }
+        return mh.asType(t);
+    }
+
+    private static boolean isGameType (Class<?> c) {
+        return !c.isPrimitive() && !c.isArray() && c.getPackageName().isEmpty();
+    }
+}
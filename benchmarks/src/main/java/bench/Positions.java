@@ -0,0 +1,92 @@
+package bench;
+
+import java.util.Random;
+
+/**
+ * The canonical positions the benchmarks run on.  Each one is reached
+ * by random moves from a fixed seed, so every run and every commit
+ * measures exactly the same boards.  No move makes a connect 4 or
+ * lets the opponent make one with its next move, so the positions are
+ * still in play for "first" games and are not decided by a simple
+ * threat: the searches have real work to do.
+ *
+ * @author Mickie Newman
+ *
+ */
+final class Positions
+{
+    static final int ROWS = 6;
+    static final int COLS = 7;
+
+    private static final long SEED = 20240601L;
+
+    private Positions() {
+    }
+
+    /**
+     * Create a board after a number of moves.  Player 1 moves first,
+     * so player 1 is to move when plies is even.
+     * @param plies The number of moves to make, at most ROWS*COLS - 1
+     * @return A Connect4Board with no connect 4 on it
+     */
+    static Object board (int plies) throws Throwable {
+        Random rand = new Random(SEED + plies);
+        while (true) {
+            Object board = (Object) Game.NEW_BOARD.invokeExact(ROWS,COLS);
+            if (playout(board,plies,rand)) {
+                return board;
+            }
+            // Not a position worth searching; try the next one.
+        }
+    }
+
+    // Make random quiet moves.  Return false if there are none left.
+    private static boolean playout (Object board, int plies, Random rand) throws Throwable {
+        for (int i=0; i<plies; i++) {
+            int id = 1 + (i%2);
+            int start = rand.nextInt(COLS);
+            boolean moved = false;
+            for (int j=0; j<COLS && !moved; j++) {
+                int col = (start+j) % COLS;
+                if (!(boolean) Game.IS_VALID_MOVE.invokeExact(board,col)) {
+                    continue;
+                }
+                int row = (int) Game.MOVE.invokeExact(board,col,id);
+                if ((boolean) Game.HAS_WINNER.invokeExact(board) || canWin(board,3-id)) {
+                    row = (int) Game.UNMOVE.invokeExact(board,col,id);
+                } else {
+                    moved = true;
+                }
+            }
+            if (!moved) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // True if player id can make a connect 4 with its next move.
+    private static boolean canWin (Object board, int id) throws Throwable {
+        for (int col=0; col<COLS; col++) {
+            if (!(boolean) Game.IS_VALID_MOVE.invokeExact(board,col)) {
+                continue;
+            }
+            int row = (int) Game.MOVE.invokeExact(board,col,id);
+            boolean won = (boolean) Game.HAS_WINNER.invokeExact(board);
+            row = (int) Game.UNMOVE.invokeExact(board,col,id);
+            if (won) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the player to move on a board made by board(plies).
+     * @param plies The number of moves made
+     * @return 1 or 2
+     */
+    static int toMove (int plies) {
+        return 1 + (plies%2);
+    }
+}
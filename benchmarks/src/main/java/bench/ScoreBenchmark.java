@@ -0,0 +1,122 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scoring a board: the game's calcWinner() and calcScore(), which it
+ * calls after every move, each player's calcScore(), which the players
+ * call at every leaf of their searches, and ThreatEvaluator, both kept
+ * up to date through a move and unmove as a search does and reset from
+ * scratch as the GameTree searches do.
+ *
+ * @author Mickie Newman
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreBenchmark
+{
+    private static final MethodHandle GREEDY_SCORE = calcScore("Greedyplayer");
+    private static final MethodHandle MINIMAX_SCORE = calcScore("MinimaxPlayer");
+    private static final MethodHandle MICKIE_SCORE = calcScore("MickieNewmanPlayer");
+
+    private static MethodHandle calcScore (String className) {
+        try {
+            return Game.calcScore(className);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({"0", "8", "16", "24"})
+    public int plies;
+
+    private Object board;
+    private Object game;
+    private Object greedy, minimax, mickie;
+    private Object threat;
+    private int col, id;
+
+    @Setup
+    public void setup() throws Throwable {
+        board = Positions.board(plies);
+        game = (Object) Game.NEW_GAME.invokeExact(Positions.ROWS,Positions.COLS,"first");
+        greedy = player("Greedyplayer");
+        minimax = player("MinimaxPlayer");
+        mickie = player("MickieNewmanPlayer");
+        threat = (Object) Game.NEW_THREAT_EVAL.invokeExact(Positions.ROWS,Positions.COLS);
+        Game.EVAL_RESET.invokeExact(threat,board);
+        id = Positions.toMove(plies);
+        col = Positions.COLS / 2;
+        while (!(boolean) Game.IS_VALID_MOVE.invokeExact(board,col)) {
+            col = (col + 1) % Positions.COLS;
+        }
+    }
+
+    private static Object player (String className) throws Throwable {
+        Object p = Game.newPlayer(className);
+        Game.INIT.invokeExact(p,1,1000,Positions.ROWS,Positions.COLS);
+        return p;
+    }
+
+    @Benchmark
+    public int gameCalcWinner() throws Throwable {
+        return (int) Game.CALC_WINNER.invokeExact(game,board);
+    }
+
+    @Benchmark
+    public int gameCalcScore() throws Throwable {
+        return (int) Game.CALC_SCORE.invokeExact(game,board,1)
+            - (int) Game.CALC_SCORE.invokeExact(game,board,2);
+    }
+
+    @Benchmark
+    public int greedyCalcScore() throws Throwable {
+        return (int) GREEDY_SCORE.invokeExact(greedy,board,1)
+            - (int) GREEDY_SCORE.invokeExact(greedy,board,2);
+    }
+
+    @Benchmark
+    public int minimaxCalcScore() throws Throwable {
+        return (int) MINIMAX_SCORE.invokeExact(minimax,board,1)
+            - (int) MINIMAX_SCORE.invokeExact(minimax,board,2);
+    }
+
+    @Benchmark
+    public int mickieNewmanCalcScore() throws Throwable {
+        return (int) MICKIE_SCORE.invokeExact(mickie,board,1)
+            - (int) MICKIE_SCORE.invokeExact(mickie,board,2);
+    }
+
+    @Benchmark
+    public int threatEvaluatorMove() throws Throwable {
+        int row = (int) Game.MOVE.invokeExact(board,col,id);
+        Game.EVAL_MOVE.invokeExact(threat,row,col,id);
+        int value = (int) Game.EVALUATE.invokeExact(threat,board,3-id);
+        Game.EVAL_UNMOVE.invokeExact(threat,row,col,id);
+        return value + (int) Game.UNMOVE.invokeExact(board,col,id);
+    }
+
+    @Benchmark
+    public int threatEvaluatorReset() throws Throwable {
+        Game.EVAL_RESET.invokeExact(threat,board);
+        return (int) Game.EVALUATE.invokeExact(threat,board,id);
+    }
+}
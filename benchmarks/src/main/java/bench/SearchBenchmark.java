@@ -0,0 +1,151 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fixed-depth searches from the canonical positions: SearchEngine and
+ * the players' own in-place searches.  Results are searches per
+ * second; SearchEngine also reports nodes per second through the
+ * "nodes" counter.  Transposition tables are cleared before every
+ * search so that each one does the same work.
+ *
+ * @author Mickie Newman
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark
+{
+    // MinimaxPlayer.minimax(board, depth, ply, maximizing, arb)
+    private static final MethodHandle MINIMAX = playerMethod("MinimaxPlayer","minimax",
+        int.class,int.class,boolean.class);
+
+    // MickieNewmanPlayer.alphabeta(board, depth, ply, alpha, beta, maximizing, arb)
+    private static final MethodHandle ALPHABETA = playerMethod("MickieNewmanPlayer","alphabeta",
+        int.class,int.class,double.class,double.class,boolean.class);
+
+    // MickieNewmanPlayer.tt
+    private static final MethodHandle MICKIE_TT;
+
+    // MickieNewmanPlayer.evaluator
+    private static final MethodHandle MICKIE_EVAL;
+
+    static {
+        try {
+            MICKIE_TT = Game.privateGetter("MickieNewmanPlayer","tt",
+                Class.forName("TranspositionTable"));
+            MICKIE_EVAL = Game.privateGetter("MickieNewmanPlayer","evaluator",
+                Class.forName("Evaluator"));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // A private search method that takes the board first and the
+    // arbitrator last, with the given parameters in between.
+    private static MethodHandle playerMethod (String className, String name, Class<?>... between) {
+        try {
+            Class<?>[] params = new Class<?> [between.length + 2];
+            params[0] = Class.forName("Connect4Board");
+            System.arraycopy(between,0,params,1,between.length);
+            params[params.length-1] = Class.forName("Arbitrator");
+            return Game.privateMethod(className,name,MethodType.methodType(int.class,params));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Nodes visited, reported by JMH as nodes per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes
+    {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    // Middle game positions for the depth-limited searches.
+    @Param({"0", "8", "16"})
+    public int plies;
+
+    @Param({"8"})
+    public int depth;
+
+    private Object board;
+    private int id;
+    private Object arb;
+    private Object tt;
+    private Object engine;
+    private Object minimax;
+    private Object mickie;
+    private Object mickieTT;
+
+    @Setup
+    public void setup() throws Throwable {
+        board = Positions.board(plies);
+        id = Positions.toMove(plies);
+        arb = (Object) Game.NEW_ARBITRATOR.invokeExact();
+        tt = (Object) Game.NEW_TT.invokeExact(16);
+        engine = (Object) Game.NEW_ENGINE.invokeExact(Positions.ROWS,Positions.COLS,tt);
+        minimax = Game.newPlayer("MinimaxPlayer");
+        Game.INIT.invokeExact(minimax,id,1000,Positions.ROWS,Positions.COLS);
+        mickie = Game.newPlayer("MickieNewmanPlayer");
+        Game.INIT.invokeExact(mickie,id,1000,Positions.ROWS,Positions.COLS);
+        mickieTT = (Object) MICKIE_TT.invokeExact(mickie);
+        // calcMove() does this before each search; the board is the
+        // same after every one.
+        Game.EVAL_RESET.invokeExact((Object) MICKIE_EVAL.invokeExact(mickie),board);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTables() throws Throwable {
+        Game.CLEAR_TT.invokeExact(tt);
+        if (mickieTT != null) {
+            Game.CLEAR_TT.invokeExact(mickieTT);
+        }
+    }
+
+    @Benchmark
+    public int searchEngine (Nodes counter) throws Throwable {
+        int value = (int) Game.SEARCH.invokeExact(engine,board,id,depth,arb);
+        counter.nodes += (long) Game.ENGINE_NODES.invokeExact(engine);
+        return value;
+    }
+
+    @Benchmark
+    public int minimaxPlayer() throws Throwable {
+        return (int) MINIMAX.invokeExact(minimax,board,depth,0,true,arb);
+    }
+
+    @Benchmark
+    public int mickieNewmanPlayer() throws Throwable {
+        return (int) ALPHABETA.invokeExact(mickie,board,depth,0,
+            Double.NEGATIVE_INFINITY,Double.POSITIVE_INFINITY,true,arb);
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * JMH benchmarks for the hot paths of the game and its players.
+ *
+ * Build and run from the top of the repository:
+ *
+ * <pre>
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar -prof gc
+ * </pre>
+ *
+ * -prof gc adds gc.alloc.rate.norm, the bytes allocated per operation,
+ * next to every result.  Search results are searches per second, with
+ * nodes per second in the "nodes" row.  Pass a regular expression to
+ * run some of the benchmarks, such as "Board" or "Search.searchEngine",
+ * and -rf json -rff results.json to save the results for comparing
+ * one commit with the next.
+ *
+ * @author Mickie Newman
+ */
+package bench;
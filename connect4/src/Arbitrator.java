@@ -1,16 +1,41 @@
 /**
  * A class providing the communication mechanism between the player and
- * the game.  All methods are synchronized because the player and the
- * game run in different threads.  All cross-thread communication is
- * managed by this class.
- * 
+ * the game.  The player and the game run in different threads, and all
+ * cross-thread communication is managed by this class.
+ *
+ * The time up flag is volatile so that players can check it as often
+ * as they like without taking a lock; setMove(), timeUp() and getMove()
+ * are synchronized so that once time is up the move can no longer
+ * change.
+ *
  * @author Mickie Newman
  *
  */
 public class Arbitrator 
 {
+    // checkTime(nodes) reads the clock when nodes is a multiple of this.
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
     private int moveCol = -1;
-    private boolean timeUp = false;
+    private volatile boolean timeUp = false;
+    private final boolean hasDeadline;
+    private final long deadline;    // System.nanoTime() when time is up.
+    private final SearchStats stats = new SearchStats();
+
+    // An arbitrator with no deadline; time is up only when the
+    // game says so.
+    public Arbitrator() {
+        this.hasDeadline = false;
+        this.deadline = 0;
+    }
+
+    // An arbitrator whose time is up msec milliseconds from now.  The
+    // game still calls timeUp(), but players can also see the deadline
+    // coming with getDeadline() and checkTime(nodes).
+    public Arbitrator(int msec) {
+        this.hasDeadline = true;
+        this.deadline = System.nanoTime() + msec * 1000000L;
+    }
 
     // Set the column of the next move.  Must be called by the
     // player so that the game can access the move.  This
@@ -22,18 +47,48 @@ public class Arbitrator
 
     // Must be called by frequently by the player to protect against
     // run-away calculations.
-    public final synchronized void checkTime() throws TimeUpException {
+    public final void checkTime() throws TimeUpException {
+        if (timeUp) {
+            throw new TimeUpException();
+        }
+    }
+
+    // Like checkTime(), but also stops the player at the deadline
+    // without waiting for the game.  Pass a count that goes up by one
+    // per call, such as a search's node count: the clock is only read
+    // every CLOCK_CHECK_INTERVAL calls, so this is cheap enough to call
+    // at every node.
+    public final void checkTime(long nodes) throws TimeUpException {
         if (timeUp) {
             throw new TimeUpException();
         }
+        if (hasDeadline && (nodes % CLOCK_CHECK_INTERVAL) == 0
+            && System.nanoTime() - deadline >= 0) {
+            timeUp();
+            throw new TimeUpException();
+        }
     }
 
     // So the player can check if time is up without having an
     // exception thrown.
-    public final synchronized boolean isTimeUp() {
+    public final boolean isTimeUp() {
         return timeUp;
     }
 
+    // The System.nanoTime() at which time will be up, so the player
+    // can plan how to use its time.  Long.MAX_VALUE if there is no
+    // deadline.
+    public final long getDeadline() {
+        return hasDeadline ? deadline : Long.MAX_VALUE;
+    }
+
+    // Where the player can report what its search did for this move:
+    // nodes, depth and so on.  Optional; the game reads it once the
+    // move is done.
+    public final SearchStats getStats() {
+        return stats;
+    }
+
     // Called by the game when the player has run out of time to
     // calculate its next move.  The effect of this method being
     // called is that checkTime() and setMove() will throw a
@@ -47,4 +102,4 @@ public class Arbitrator
     public final synchronized int getMove() { 
         return moveCol; 
     }
-}
\ No newline at end of file
+}
@@ -2,15 +2,35 @@
 /**
  * A class to represent a connect 4 board.
  * 
+ * Boards that fit in a 64-bit word (one bit per cell plus a sentinel
+ * row on top of every column, i.e. (rows+1)*cols <= 64) are stored as
+ * one bitboard per player.  Cell (row, col) is bit col*(rows+1)+row, so
+ * the default 6x7 board uses 49 bits.  The empty sentinel row keeps
+ * shifted patterns from wrapping from one column into the next.
+ * Larger boards fall back to an int per cell.
+ * 
+ * Every board also carries a 64-bit Zobrist key that is updated as
+ * pieces are added and removed, for use as a hash key in position
+ * caches.
+ * 
  * @author Daniel Szafir
  *
  */
 public class Connect4Board
 {
     private int rows, cols;
-    private int[] cells;
+    private int[] cells;        // Only used by boards too big for a bitboard.
+    private long[] masks;       // Indexed by player id; masks[0] is unused.
+    private int height;         // Bits per column in the bitboard (rows+1).
     private int totalCount;
     private int[] colCounts;
+    private int[] connect4s;    // Completed connect 4s, indexed by player id.
+    private long[] zobrist;     // Random bits per (id, cell); shared by copies.
+    private long key;           // XOR of zobrist bits of all pieces.
+    private long mirrorKey;     // Key of the left-right mirror image.
+
+    // Fixed so that keys are the same from run to run and can be saved.
+    private static final long ZOBRIST_SEED = 0x2545F4914F6CDD1DL;
 
     /**
      * Creates a new connect 4 board of the default size (6 rows and 7 columns)
@@ -25,24 +45,78 @@ public class Connect4Board
      * @param cols Number of columns
      */
     public Connect4Board (int rows, int cols) {
+        this(rows,cols,zobristKeys(rows,cols));
+    }
+
+    /**
+     * Creates a copy of an existing board.
+     * @param that The board to copy
+     */
+    public Connect4Board (Connect4Board that) {
+        this(that.numRows(),that.numCols(),that.zobrist);
+        copy(that);
+    }
+
+    // An empty board that uses the given zobrist keys.
+    private Connect4Board (int rows, int cols, long[] zobrist) {
         this.rows = rows;
         this.cols = cols;
-        this.cells = new int [rows*cols];
+        this.height = rows+1;
+        if (fitsBitboard(rows,cols)) {
+            this.masks = new long [3];
+        } else {
+            this.cells = new int [rows*cols];
+        }
         this.totalCount = 0;
         this.colCounts = new int [cols];
+        this.connect4s = new int [3];
+        this.zobrist = zobrist;
+    }
+
+    private static long[] zobristKeys (int rows, int cols) {
+        long[] z = new long [3*rows*cols];
+        java.util.SplittableRandom rand = 
+            new java.util.SplittableRandom(ZOBRIST_SEED ^ (rows*31+cols));
+        for (int i=rows*cols; i<z.length; i++) {
+            z[i] = rand.nextLong();
+        }
+        return z;
     }
 
     /**
-     * Creates a copy of an existing board.
+     * Make this board the same as another board of the same size,
+     * without allocating anything.
      * @param that The board to copy
      */
-    public Connect4Board (Connect4Board that) {
-        this(that.numRows(),that.numCols());
-        System.arraycopy(that.cells,0,this.cells,0,rows*cols);
+    public void copy (Connect4Board that) {
+        if (that.rows != rows || that.cols != cols) {
+            throw new IllegalArgumentException(
+                "cannot copy a " + that.rows + "x" + that.cols
+                + " board to a " + rows + "x" + cols + " board");
+        }
+        if (masks != null) {
+            this.masks[1] = that.masks[1];
+            this.masks[2] = that.masks[2];
+        } else {
+            System.arraycopy(that.cells,0,this.cells,0,rows*cols);
+        }
         System.arraycopy(that.colCounts,0,this.colCounts,0,cols);
+        System.arraycopy(that.connect4s,0,this.connect4s,0,3);
+        this.key = that.key;
+        this.mirrorKey = that.mirrorKey;
         this.totalCount = that.totalCount;
     }
 
+    /**
+     * Check whether a board of the given size is stored as a bitboard.
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @return True if every column plus its sentinel bit fits in a long
+     */
+    public static boolean fitsBitboard (int rows, int cols) {
+        return (rows+1)*cols <= 64;
+    }
+
     /**
      * Get the number of rows of the board
      * @return The number of rows
@@ -64,7 +138,7 @@ public class Connect4Board
      * @return The number of cells
      */
     public int numCells() { 
-        return cells.length;
+        return rows*cols;
     }
 
     /**
@@ -136,7 +210,13 @@ public class Connect4Board
             throw new IndexOutOfBoundsException(
                 "row=" + row + " col=" + col);
         }
-        return cells[row*cols+col];
+        if (masks == null) {
+            return cells[row*cols+col];
+        }
+        long bit = 1L << (col*height+row);
+        if ((masks[1] & bit) != 0) return 1;
+        if ((masks[2] & bit) != 0) return 2;
+        return 0;
     }
 
     // This method is private on purpose.  It is too dangerous to
@@ -151,19 +231,108 @@ public class Connect4Board
             throw new IndexOutOfBoundsException(
                 "row=" + row + " col=" + col);
         }
-        cells[row*cols+col] = id;
+        if (masks == null) {
+            cells[row*cols+col] = id;
+            return;
+        }
+        long bit = 1L << (col*height+row);
+        masks[1] &= ~bit;
+        masks[2] &= ~bit;
+        if (id != 0) masks[id] |= bit;
     }
 
     /**
      * Reverse the state of a board, i.e., change all player#1 pieces to player#2, and vice versa.
      */
     public void reverse() {
+        int n = connect4s[1];
+        connect4s[1] = connect4s[2];
+        connect4s[2] = n;
+        key = mirrorKey = 0;
         for (int r=0; r<rows; r++) {
             for (int c=0; c<cols; c++) {
                 int v = get(r,c);
-                if (v!=0) set(r,c,3-v);
+                if (v == 0) continue;
+                if (masks == null) set(r,c,3-v);
+                key ^= zobrist(3-v,r,c);
+                mirrorKey ^= zobrist(3-v,r,cols-1-c);
+            }
+        }
+        if (masks != null) {
+            long m = masks[1];
+            masks[1] = masks[2];
+            masks[2] = m;
+        }
+    }
+
+    /**
+     * Get the Zobrist key of the current position.  Equal positions on
+     * boards of the same size always have equal keys.
+     * @return A 64-bit hash of the pieces on the board
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * Get a key that is the same for a position and its left-right
+     * mirror image.  Use key() != canonicalKey() to tell whether the
+     * key belongs to the mirrored board, in which case column c
+     * corresponds to column numCols()-1-c.
+     * @return The smaller of the keys of this board and its mirror image
+     */
+    public long canonicalKey() {
+        return Math.min(key,mirrorKey);
+    }
+
+    /**
+     * Get the key of this board, or of the board reverse() would make,
+     * without changing or copying the board.
+     * @param swapPlayers True for the key with the players swapped
+     * @return The key
+     */
+    public long key (boolean swapPlayers) {
+        return swapPlayers ? swappedKey(false) : key;
+    }
+
+    /**
+     * Get the canonical key of this board, or of the board reverse()
+     * would make, without changing or copying the board.
+     * @param swapPlayers True for the key with the players swapped
+     * @return The smaller of the keys of the board and its mirror image
+     */
+    public long canonicalKey (boolean swapPlayers) {
+        if (!swapPlayers) {
+            return canonicalKey();
+        }
+        return Math.min(swappedKey(false),swappedKey(true));
+    }
+
+    // The key of the board with the players swapped, and also mirrored
+    // left to right if mirror is true.
+    private long swappedKey (boolean mirror) {
+        long k = 0;
+        if (masks == null) {
+            for (int r=0; r<rows; r++) {
+                for (int c=0; c<cols; c++) {
+                    int v = cells[r*cols+c];
+                    if (v != 0) k ^= zobrist(3-v,r,mirror ? cols-1-c : c);
+                }
+            }
+            return k;
+        }
+        for (int id=1; id<=2; id++) {
+            for (long m=masks[id]; m != 0; m &= m-1) {
+                int bit = Long.numberOfTrailingZeros(m);
+                int c = bit/height;
+                k ^= zobrist(3-id,bit-c*height,mirror ? cols-1-c : c);
             }
         }
+        return k;
+    }
+
+    private long zobrist (int id, int row, int col) {
+        return zobrist[(id*rows+row)*cols+col];
     }
 
     /**
@@ -189,7 +358,14 @@ public class Connect4Board
             throw new IllegalArgumentException(
                 "invalid move: col="+col);
         }
-        set(colCounts[col]++,col,id);
+        if (masks != null) {
+            masks[id] |= 1L << (col*height+colCounts[col]++);
+        } else {
+            set(colCounts[col]++,col,id);
+        }
+        connect4s[id] += connect4sThrough(colCounts[col]-1,col,id);
+        key ^= zobrist(id,colCounts[col]-1,col);
+        mirrorKey ^= zobrist(id,colCounts[col]-1,cols-1-col);
         totalCount++;
         return colCounts[col]-1;
     }
@@ -208,11 +384,134 @@ public class Connect4Board
             throw new IllegalArgumentException(
                 "invalid unmove: col="+col);
         }
-        set(--colCounts[col],col,0);
+        connect4s[id] -= connect4sThrough(colCounts[col]-1,col,id);
+        key ^= zobrist(id,colCounts[col]-1,col);
+        mirrorKey ^= zobrist(id,colCounts[col]-1,cols-1-col);
+        if (masks != null) {
+            masks[id] &= ~(1L << (col*height+--colCounts[col]));
+        } else {
+            set(--colCounts[col],col,0);
+        }
         totalCount--;
         return colCounts[col];
     }
     
+    /**
+     * Get the number of connect 4s a player has.  Overlapping lines
+     * count separately, so five in a row scores 2.  The count is kept
+     * up to date by move() and unmove(), so this takes constant time.
+     * @param id The player to check
+     * @return The number of connect 4s player id has on the board
+     */
+    public int score (int id) {
+        return connect4s[id];
+    }
+
+    /**
+     * Check if either player has a connect 4.
+     * @return True if player #1 or player #2 has at least one connect 4
+     */
+    public boolean hasWinner () {
+        return connect4s[1] > 0 || connect4s[2] > 0;
+    }
+
+    // Count the connect 4s of player id that use the piece at (row, col).
+    // In each direction, a run of a pieces on one side and b on the
+    // other (each capped at 3) holds max(0, a+b-2) windows of four
+    // that include the piece itself.
+    private int connect4sThrough (int row, int col, int id) {
+        return windows(run(row,col,0,1,id) + run(row,col,0,-1,id))
+            + windows(run(row,col,-1,0,id))
+            + windows(run(row,col,1,1,id) + run(row,col,-1,-1,id))
+            + windows(run(row,col,1,-1,id) + run(row,col,-1,1,id));
+    }
+
+    private static int windows (int n) {
+        return n > 2 ? n-2 : 0;
+    }
+
+    // Number of consecutive pieces of player id (at most 3) starting
+    // next to (row, col) and moving by (dr, dc).
+    private int run (int row, int col, int dr, int dc, int id) {
+        int n = 0;
+        for (int r=row+dr, c=col+dc; n<3; r+=dr, c+=dc, n++) {
+            if (r<0 || r>=rows || c<0 || c>=cols) break;
+            if (masks != null) {
+                if ((masks[id] & (1L << (c*height+r))) == 0) break;
+            } else if (cells[r*cols+c] != id) {
+                break;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Check if a player has at least one connect 4 anywhere on the board.
+     * @param id The player to check
+     * @return True if player id has four pieces in a row
+     */
+    public boolean hasConnect4 (int id) {
+        if (id < 1 || id > 2) {
+            throw new IllegalArgumentException("id="+id);
+        }
+        if (masks == null) {
+            return scanConnect4(id);
+        }
+        // Shift-and-AND along each direction: bit i of m survives if
+        // the cells i, i+d, i+2d and i+3d all belong to the player.
+        long p = masks[id];
+        long m = p & (p >>> 1);                         // vertical
+        if ((m & (m >>> 2)) != 0) return true;
+        m = p & (p >>> height);                         // horizontal
+        if ((m & (m >>> 2*height)) != 0) return true;
+        m = p & (p >>> (height+1));                     // rising diagonal
+        if ((m & (m >>> 2*(height+1))) != 0) return true;
+        m = p & (p >>> (height-1));                     // falling diagonal
+        if ((m & (m >>> 2*(height-1))) != 0) return true;
+        return false;
+    }
+
+    // Cell-by-cell connect 4 search for boards too big for a bitboard.
+    private boolean scanConnect4 (int id) {
+        final int[][] dirs = { {0,1}, {1,0}, {1,1}, {-1,1} };
+        for (int r=0; r<rows; r++) {
+            for (int c=0; c<cols; c++) {
+                if (cells[r*cols+c] != id) continue;
+                for (int[] d : dirs) {
+                    int r3 = r+3*d[0], c3 = c+3*d[1];
+                    if (r3<0 || r3>=rows || c3>=cols) continue;
+                    if (cells[(r+d[0])*cols+c+d[1]] != id) continue;
+                    if (cells[(r+2*d[0])*cols+c+2*d[1]] != id) continue;
+                    if (cells[r3*cols+c3] != id) continue;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Two boards are equal if they have the same size and the same
+     * pieces in the same cells.
+     */
+    @Override
+    public boolean equals (Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Connect4Board)) return false;
+        Connect4Board that = (Connect4Board) o;
+        if (rows != that.rows || cols != that.cols) return false;
+        if (key != that.key || totalCount != that.totalCount) return false;
+        if (masks != null) {
+            return masks[1] == that.masks[1] && masks[2] == that.masks[2];
+        }
+        return java.util.Arrays.equals(cells,that.cells);
+    }
+
+    @Override
+    public int hashCode () {
+        return (int) (key ^ (key >>> 32));
+    }
+
     /**
      * Get a String representation of the board. May be useful for debugging.
      */
@@ -22,12 +22,16 @@ public class Connect4Game
 	private int gameNum;
 	private int moveNum;
 	private int whoseTurn;
+	private boolean forfeit;
 
 	// State that is permanent throughout a game but transient
 	// during a match.
 	private Connect4Board startingBoard;
+	private int[] seedMoves;	// The columns of the starting board's moves,
+	private int seedPlayer;		// made by this player first.
 	private Connect4Board board;
 	private Player p1, p2;
+	private PlayerRunner p1Runner, p2Runner;
 	private String p1HumanName, p2HumanName;
 	private String p1ClassFileName, p2ClassFileName;
 
@@ -41,6 +45,15 @@ public class Connect4Game
 	private int p1GamesWon, p2GamesWon;
 	private int p1Points, p2Points;
 
+	// Where finished games are recorded, from the connect4.record
+	// system property, or null.
+	private GameRecordWriter record;
+
+	// True to let players that implement Ponderer think on their
+	// opponent's time, from the connect4.ponder system property.
+	private final boolean ponder = Boolean.getBoolean("connect4.ponder")
+			&& PlayerRunner.canPonder();
+
 	// Maintain an epoch counter that is bumped whenever a new match
 	// starts. This is helpful for UI control.
 	public int epoch;
@@ -83,6 +96,7 @@ public class Connect4Game
 		this.epoch = 0;
 		
 		this.gui = gui;
+		this.record = GameRecordWriter.fromProperty();
 
 		// Open the GUI.
 //		gui = Connect4GUI.getInstance("Connect-4", this, rows, cols);
@@ -125,10 +139,20 @@ public class Connect4Game
 		gui.updateScore(p1GamesWon, p2GamesWon, p1Points, p2Points);
 		if (state != STATE_MATCHOVER) {
 			status(((whoseTurn == 1) ? p1 : p2).name() + "'s turn"
-					+ " (Player #" + whoseTurn + ")");
+					+ " (Player #" + whoseTurn + ")" + searchSummary(3 - whoseTurn));
 		}
 	}
 
+	// What player #id has reported about its searches this game, for
+	// the status bar, or nothing if it has not reported anything.
+	private String searchSummary(int id)
+	{
+		PlayerRunner runner = (id == 1) ? p1Runner : p2Runner;
+		if (runner == null || runner.getTotalStats().isEmpty()) return "";
+		return "; " + runner.getPlayer().name() + " this game: "
+				+ runner.getTotalStats();
+	}
+
 	public void status(String status)
 	{
 		System.err.println(status);
@@ -144,6 +168,8 @@ public class Connect4Game
 	{
 		Connect4Board b = new Connect4Board(rows, cols);
 		java.util.Random rand = new java.util.Random();
+		seedMoves = new int[nmoves];
+		seedPlayer = 1;
 		for (int i = 0; i < nmoves; i++) {
 			int col = 0;
 			do {
@@ -151,6 +177,7 @@ public class Connect4Game
 			}
 			while (!b.isValidMove(col));
 			b.move(col, 1 + (i % 2));
+			seedMoves[i] = col;
 		}
 		return b;
 	}
@@ -161,6 +188,7 @@ public class Connect4Game
 		assert (numSeedMoves % 2) == 0;
 		if (matchPlay && (gameNum % 2) == 0) {
 			startingBoard.reverse();
+			seedPlayer = 3 - seedPlayer;
 		}
 		else {
 			startingBoard = newBoard(numSeedMoves);
@@ -205,8 +233,24 @@ public class Connect4Game
 		if ((p2 instanceof HumanPlayer) && p2HumanName != null) {
 			((HumanPlayer) p2).setName(p2HumanName);
 		}
+		// Stop the old players' threads, which may still be pondering.
+		if (p1Runner != null) p1Runner.close();
+		if (p2Runner != null) p2Runner.close();
 		p1.init(1, msecPerMove, rows, cols);
 		p2.init(2, msecPerMove, rows, cols);
+		p1.setGame(game);
+		p2.setGame(game);
+		p1Runner = new PlayerRunner(p1);
+		p2Runner = new PlayerRunner(p2);
+		p1Runner.setGame(1, game);
+		p2Runner.setGame(2, game);
+		p1Runner.setPonder(ponder);
+		p2Runner.setPonder(ponder);
+		// A game that was not finished is not recorded.
+		if (record != null) {
+			record.startGame(rows, cols, game, p1.name(), p2.name(),
+					seedMoves, seedPlayer, whoseTurn);
+		}
 	}
 
 	// Reset things for a new match.
@@ -225,6 +269,7 @@ public class Connect4Game
 		gameNum = newMatch ? 1 : (gameNum + 1);
 		moveNum = 1;
 		whoseTurn = 2 - (gameNum % 2);
+		forfeit = false;
 		// System.err.println("gameNum="+gameNum+" whoseTurn="+whoseTurn);
 		p1Points = p2Points = 0;
 		if (newMatch) {
@@ -320,105 +365,19 @@ public class Connect4Game
 	// Return -1 if there is more than 1 winner.
 	public int calcWinner(Connect4Board board)
 	{
-		final int rows = board.numRows();
-		final int cols = board.numCols();
-		int winner = 0;
-		// Look for horizontal connect-4s.
-		for (int r = 0; r < rows; r++) {
-			for (int c = 0; c <= cols - 4; c++) {
-				int id = board.get(r, c);
-				if (id == 0) continue;
-				if (board.get(r, c + 1) != id) continue;
-				if (board.get(r, c + 2) != id) continue;
-				if (board.get(r, c + 3) != id) continue;
-				if (winner != 0 && winner != id) return -1;
-				winner = id;
-			}
-		}
-		// Look for vertical connect-4s.
-		for (int c = 0; c < cols; c++) {
-			for (int r = 0; r <= rows - 4; r++) {
-				int id = board.get(r, c);
-				if (id == 0) continue;
-				if (board.get(r + 1, c) != id) continue;
-				if (board.get(r + 2, c) != id) continue;
-				if (board.get(r + 3, c) != id) continue;
-				if (winner != 0 && winner != id) return -1;
-				winner = id;
-			}
-		}
-		// Look for diagonal connect-4s.
-		for (int c = 0; c <= cols - 4; c++) {
-			for (int r = 0; r <= rows - 4; r++) {
-				int id = board.get(r, c);
-				if (id == 0) continue;
-				if (board.get(r + 1, c + 1) != id) continue;
-				if (board.get(r + 2, c + 2) != id) continue;
-				if (board.get(r + 3, c + 3) != id) continue;
-				if (winner != 0 && winner != id) return -1;
-				winner = id;
-			}
-		}
-		for (int c = 0; c <= cols - 4; c++) {
-			for (int r = rows - 1; r >= 4 - 1; r--) {
-				int id = board.get(r, c);
-				if (id == 0) continue;
-				if (board.get(r - 1, c + 1) != id) continue;
-				if (board.get(r - 2, c + 2) != id) continue;
-				if (board.get(r - 3, c + 3) != id) continue;
-				if (winner != 0 && winner != id) return -1;
-				winner = id;
-			}
-		}
-		return winner;
+		boolean p1Won = board.score(1) > 0;
+		boolean p2Won = board.score(2) > 0;
+		if (p1Won && p2Won) return -1;
+		if (p1Won) return 1;
+		if (p2Won) return 2;
+		return 0;
 	}
 
-	// Return the number of connect-4s that player #id has.
+	// Return the number of connect-4s that player #id has. The board
+	// keeps this count up to date as moves are made.
 	public int calcScore(Connect4Board board, int id)
 	{
-		final int rows = board.numRows();
-		final int cols = board.numCols();
-		int score = 0;
-		// Look for horizontal connect-4s.
-		for (int r = 0; r < rows; r++) {
-			for (int c = 0; c <= cols - 4; c++) {
-				if (board.get(r, c + 0) != id) continue;
-				if (board.get(r, c + 1) != id) continue;
-				if (board.get(r, c + 2) != id) continue;
-				if (board.get(r, c + 3) != id) continue;
-				score++;
-			}
-		}
-		// Look for vertical connect-4s.
-		for (int c = 0; c < cols; c++) {
-			for (int r = 0; r <= rows - 4; r++) {
-				if (board.get(r + 0, c) != id) continue;
-				if (board.get(r + 1, c) != id) continue;
-				if (board.get(r + 2, c) != id) continue;
-				if (board.get(r + 3, c) != id) continue;
-				score++;
-			}
-		}
-		// Look for diagonal connect-4s.
-		for (int c = 0; c <= cols - 4; c++) {
-			for (int r = 0; r <= rows - 4; r++) {
-				if (board.get(r + 0, c + 0) != id) continue;
-				if (board.get(r + 1, c + 1) != id) continue;
-				if (board.get(r + 2, c + 2) != id) continue;
-				if (board.get(r + 3, c + 3) != id) continue;
-				score++;
-			}
-		}
-		for (int c = 0; c <= cols - 4; c++) {
-			for (int r = rows - 1; r >= 4 - 1; r--) {
-				if (board.get(r - 0, c + 0) != id) continue;
-				if (board.get(r - 1, c + 1) != id) continue;
-				if (board.get(r - 2, c + 2) != id) continue;
-				if (board.get(r - 3, c + 3) != id) continue;
-				score++;
-			}
-		}
-		return score;
+		return board.score(id);
 	}
 
 	private void doMove(int col)
@@ -430,6 +389,7 @@ public class Connect4Game
 		status(((whoseTurn == 1) ? p1 : p2).name() + " (Player #" + whoseTurn
 				+ ")" + " moves to column #" + col);
 		board.move(col, whoseTurn);
+		if (record != null) record.move(col);
 
 		// Check for a winner.
 		boolean gameWon = false;
@@ -484,6 +444,19 @@ public class Connect4Game
 			default:
 				throw new Error("bug: winner=" + id);
 		}
+		// Stop the players' threads now, not when the next game starts,
+		// as there may not be one.
+		p1Runner.close();
+		p2Runner.close();
+		if (record != null) {
+			try {
+				record.endGame(id, forfeit);
+			}
+			catch (IOException e) {
+				status("Cannot record the game: " + e.getMessage());
+				record = null;
+			}
+		}
 		updateGUI();
 		gui.announceGameWinner(msg, gameNum, numGames);
 
@@ -514,7 +487,8 @@ public class Connect4Game
 		// Let the next player calculate their next move.
 		assert whoseTurn == 1 || whoseTurn == 2 : whoseTurn;
 		Player[] players = { null, p1, p2 };
-		int moveCol = calcMove(board, players[whoseTurn], prevMoveCol,
+		PlayerRunner[] runners = { null, p1Runner, p2Runner };
+		int moveCol = calcMove(board, runners[whoseTurn], prevMoveCol,
 				msecPerMove);
 
 		// Make sure the move is valid. If it is not, then
@@ -523,6 +497,7 @@ public class Connect4Game
 			status("Player #" + whoseTurn + " (" + players[whoseTurn].name()
 					+ ") made an illegal move in col "+moveCol);
 			int winner = (whoseTurn == 1) ? 2 : 1;
+			forfeit = true;
 			declareWinner(winner);
 		}
 		else {
@@ -572,62 +547,14 @@ public class Connect4Game
 	// permitted to spend more than msecAllowed time to do this
 	// calculation. If the player takes too much time, then we
 	// have it make an illegal move (which forfeits the game).
-	private int calcMove(Connect4Board board, Player player, int prevMoveCol,
-			int msecPerMove)
+	private int calcMove(Connect4Board board, PlayerRunner runner,
+			int prevMoveCol, int msecPerMove)
 	{
-		// Start up the player in a separate thread so we are
-		// protected from its exceptions and infinite loops.
-		Arbitrator arb = new Arbitrator();
-		PlayerThread pt = new PlayerThread(player, board, prevMoveCol, arb);
-		pt.start();
-		long startTime = System.currentTimeMillis();
-		Thread.yield();
-
-		// Let the player think for a while.
-		int msecAllowed = msecPerMove * 120 / 100;
-		int msecPerSpin = msecAllowed / 100;
-		msecPerSpin = Math.max(1, msecPerSpin);
-		while (true) {
-			// If the player is done thinking, then stop spinning.
-			if (!pt.isAlive()) break;
-			// If the max allowed time has elapsed, then stop spinning.
-			if (System.currentTimeMillis() - startTime > msecAllowed) break;
-			// Otherwise, spin.
-			try {
-				Thread.sleep(msecPerSpin);
-			}
-			catch (InterruptedException e) {
-			}
-		}
-
-		// Notify the player thread that time is up. If the player
-		// is already done calculating its next move, then this has
-		// no effect. If the player is still working, then its
-		// next call to checkTime() will cause it to stop.
-		arb.timeUp();
-
-		// Give the player thread time to stop.
-		for (int i = 0; i < 5; i++) {
-			Thread.yield();
-			if (pt.isAlive()) {
-				try {
-					Thread.sleep(100);
-				}
-				catch (InterruptedException e) {
-				}
-			}
-		}
-
-		// If the player thread has still not exited, then disqualify it by
-		// returning an invalid move; otherwise, return whatever move it
-		// calculated.
-		if (pt.isAlive()) {
-			status("Player #" + whoseTurn + " (" + player.name()
+		int moveCol = runner.calcMove(board, prevMoveCol, msecPerMove);
+		if (runner.timedOut()) {
+			status("Player #" + whoseTurn + " (" + runner.getPlayer().name()
 					+ ") is disqualified for taking too much time.");
-			return -1;
-		}
-		else {
-			return arb.getMove();
 		}
+		return moveCol;
 	}
 }
@@ -0,0 +1,192 @@
+/**
+ * Plays a match from the command line with no GUI, for running lots of
+ * games on machines that have no display.  It takes the same options as
+ * Connect4 and prints the result of every game and of the match.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class Connect4Headless
+{
+	// Print program usage and exit.
+	private static void usage()
+	{
+		System.err.println();
+		System.err.println("usage: Connect4Headless [options]");
+		System.err.println();
+		System.err.println("     r - Number of rows, >= 4.");
+		System.err.println("     c - Number of columns, >= 4.");
+		System.err.println("     n - Number of games per match.");
+		System.err.println("     t - Time allowed per move (msec).");
+		System.err.println("    p1 - Class name for player #1.");
+		System.err.println("    p2 - Class name for player #2.");
+		System.err.println("    mp - Match play?  One of {on,off}.");
+		System.err.println("    nr - Number of random moves, even, >=0, <=rows*cols.");
+		System.err.println("  game - Which game to play:");
+		System.err.println("         first - First Connect-4 wins.");
+		System.err.println("          most - Most Connect-4s wins.");
+		System.err.println("  seed - Random seed for the random moves.");
+		System.err.println("     q - Quiet: only print the match result.");
+		System.err.println(" stats - File to write each move's search stats to,");
+		System.err.println("         as JSON if it ends in .json, else as CSV.");
+		System.err.println("record - File to add the games to, for GameRecordReader.");
+		System.err.println("ponder - Let the players think on the opponent's time,");
+		System.err.println("         if there are at least 2 processors.");
+		System.err.println();
+		System.err.println("The player classes must be in CLASSPATH.");
+		System.err.println();
+		System.exit(1);
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		int rows = 6;
+		int cols = 7;
+		String game = "most";
+		int msec = 250;
+		int ngames = 1;
+		int numRandMoves = 0;
+		boolean matchPlay = false;
+		String p1 = null;
+		String p2 = null;
+		Long seed = null;
+		boolean quiet = false;
+		String statsFile = null;
+		String recordFile = null;
+		boolean ponder = false;
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-r")) {
+				if (++i == args.length) usage();
+				rows = Integer.parseInt(args[i]);
+				if (rows < 4) usage();
+				continue;
+			}
+			if (args[i].equals("-c")) {
+				if (++i == args.length) usage();
+				cols = Integer.parseInt(args[i]);
+				if (cols < 4) usage();
+				continue;
+			}
+			if (args[i].equals("-nr")) {
+				if (++i == args.length) usage();
+				numRandMoves = Integer.parseInt(args[i]);
+				if (numRandMoves < 0) usage();
+				if ((numRandMoves % 2) == 1) usage();
+				continue;
+			}
+			if (args[i].equals("-game")) {
+				if (++i == args.length) usage();
+				game = args[i];
+				if (!game.equals("first") && !game.equals("most")) usage();
+				continue;
+			}
+			if (args[i].equals("-mp")) {
+				if (++i == args.length) usage();
+				if (!args[i].equals("on") && !args[i].equals("off")) usage();
+				matchPlay = args[i].equals("on");
+				continue;
+			}
+			if (args[i].equals("-t")) {
+				if (++i == args.length) usage();
+				msec = Integer.parseInt(args[i]);
+				if (msec < 0) usage();
+				continue;
+			}
+			if (args[i].equals("-p1")) {
+				if (++i == args.length) usage();
+				p1 = args[i];
+				continue;
+			}
+			if (args[i].equals("-p2")) {
+				if (++i == args.length) usage();
+				p2 = args[i];
+				continue;
+			}
+			if (args[i].equals("-n")) {
+				if (++i == args.length) usage();
+				ngames = Integer.parseInt(args[i]);
+				if (ngames < 1) usage();
+				continue;
+			}
+			if (args[i].equals("-seed")) {
+				if (++i == args.length) usage();
+				seed = Long.parseLong(args[i]);
+				continue;
+			}
+			if (args[i].equals("-stats")) {
+				if (++i == args.length) usage();
+				statsFile = args[i];
+				continue;
+			}
+			if (args[i].equals("-record")) {
+				if (++i == args.length) usage();
+				recordFile = args[i];
+				continue;
+			}
+			if (args[i].equals("-q")) {
+				quiet = true;
+				continue;
+			}
+			if (args[i].equals("-ponder")) {
+				ponder = true;
+				continue;
+			}
+			usage();
+		}
+		if (numRandMoves > rows * cols) usage();
+		// There is nobody to click for a HumanPlayer.
+		if (p1 == null || p2 == null) usage();
+		// With match play every board is played from both sides.
+		if (matchPlay && (ngames % 2) == 1) ngames++;
+
+		MatchEngine match = null;
+		try {
+			match = new MatchEngine(rows, cols, game, msec, ngames,
+					numRandMoves, matchPlay, p1, p2);
+		}
+		catch (ReflectiveOperationException | ClassCastException e) {
+			System.err.println("Cannot load the players: " + e);
+			System.exit(1);
+		}
+		if (seed != null) match.setSeed(seed);
+		if (!quiet) match.setLog(System.out);
+		SearchStatsLog statsLog = null;
+		if (statsFile != null) {
+			statsLog = SearchStatsLog.open(statsFile);
+			match.setStatsLog(statsLog);
+		}
+		if (ponder && !PlayerRunner.canPonder()) {
+			System.err.println("Pondering needs at least 2 processors; it is off.");
+			ponder = false;
+		}
+		match.setPonder(ponder);
+		GameRecordWriter record = null;
+		if (recordFile != null) {
+			record = new GameRecordWriter(recordFile);
+			match.setRecord(record);
+		}
+
+		long startTime = System.currentTimeMillis();
+		match.play();
+		long elapsed = System.currentTimeMillis() - startTime;
+		if (statsLog != null) statsLog.close();
+		if (record != null) record.close();
+
+		System.out.println(match.getP1Name() + " [" + p1 + "] (Player #1): "
+				+ match.getP1GamesWon() + " wins, " + match.getP1Forfeits() + " forfeits");
+		System.out.println(match.getP2Name() + " [" + p2 + "] (Player #2): "
+				+ match.getP2GamesWon() + " wins, " + match.getP2Forfeits() + " forfeits");
+		System.out.println("draws: " + match.getDraws());
+		if (!match.getP1Stats().isEmpty()) {
+			System.out.println(match.getP1Name() + " search: " + match.getP1Stats());
+		}
+		if (!match.getP2Stats().isEmpty()) {
+			System.out.println(match.getP2Name() + " search: " + match.getP2Stats());
+		}
+		System.out.println(match.getGamesPlayed() + " games in " + elapsed + " msec");
+
+		// Players that ignored their time limit may still be running.
+		System.exit(0);
+	}
+}
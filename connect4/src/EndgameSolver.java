@@ -0,0 +1,233 @@
+/**
+ * A perfect-play solver for the "first" game (first connect 4 wins)
+ * near the end of the game.  It finds whether the player to move wins,
+ * draws or loses with best play by both sides, and a move that gets
+ * that result.
+ *
+ * The solver copies the position into its own bitboards (the same
+ * layout as Connect4Board: bit col*(rows+1)+row) and runs a negamax
+ * alpha-beta search over the three values -1, 0 and 1, so after the
+ * first move every window is a null window.  It only plays moves that
+ * do not hand the opponent an immediate win and remembers upper bounds
+ * in a small transposition table.
+ *
+ * Only boards where Connect4Board.fitsBitboard() is true are supported.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class EndgameSolver
+{
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+
+    private static final int TABLE_BITS = 20;
+
+    private final int rows, cols, height;
+    private final long bottom;          // Bottom cell of every column.
+    private final long full;            // Every playable cell.
+    private final int[] centerOrder;
+    private final int[] lineSteps;      // Bit distances along the non-vertical lines.
+    private final long[] tableKeys;
+    private final byte[] tableValues;   // Upper bound + 2; 0 means empty.
+
+    private Arbitrator arb;
+    private long nodes;
+    private int bestMove;
+
+    /**
+     * Create a solver for boards of the given size.
+     * @param rows Number of rows
+     * @param cols Number of columns
+     */
+    public EndgameSolver (int rows, int cols) {
+        if (!Connect4Board.fitsBitboard(rows,cols)) {
+            throw new IllegalArgumentException(
+                "board too big to solve: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.height = rows+1;
+        long b = 0;
+        for (int c=0; c<cols; c++) b |= 1L << (c*height);
+        this.bottom = b;
+        this.full = b * ((1L << rows) - 1);
+        this.centerOrder = new int [cols];
+        for (int i=0; i<cols; i++) {
+            int offset = (i+1)/2;
+            centerOrder[i] = (cols-1)/2 + ((i%2)==1 ? offset : -offset);
+        }
+        this.lineSteps = new int [] { height, height+1, height-1 };
+        this.tableKeys = new long [1 << TABLE_BITS];
+        this.tableValues = new byte [1 << TABLE_BITS];
+    }
+
+    /**
+     * Solve a position.  Positions that already have a connect 4 cannot
+     * be solved since the game is over.
+     * @param board The position to solve; it is not changed
+     * @param id The player to move
+     * @param arb Checked regularly so that the solver stops when time is
+     *            up; the nodes searched are added to its stats
+     * @return WIN, DRAW or LOSS for player id
+     * @throws TimeUpException If time runs out before the position is solved
+     */
+    public int solve (Connect4Board board, int id, Arbitrator arb)
+        throws TimeUpException {
+        if (board.isFull() || board.hasWinner()) {
+            throw new IllegalArgumentException("game is over");
+        }
+        this.arb = arb;
+        this.nodes = 0;
+        long position = 0, mask = 0;
+        for (int c=0; c<cols; c++) {
+            for (int r=0; r<board.numOccupiedCells(c); r++) {
+                long bit = 1L << (c*height+r);
+                mask |= bit;
+                if (board.get(r,c) == id) position |= bit;
+            }
+        }
+        int moves = board.numOccupiedCells();
+
+        bestMove = -1;
+        int best = LOSS - 1;
+        try {
+            for (int i=0; i<cols; i++) {
+                int col = centerOrder[i];
+                if (!canPlay(mask,col)) continue;
+                int v;
+                if (isWinningMove(position,mask,col)) {
+                    v = WIN;
+                } else {
+                    v = -negamax(position ^ mask,mask | (mask + columnBottom(col)),
+                                 moves+1,-WIN,-Math.max(best,LOSS));
+                }
+                if (v > best) {
+                    best = v;
+                    bestMove = col;
+                    if (best == WIN) break;
+                }
+            }
+        } finally {
+            arb.getStats().addNodes(nodes);
+        }
+        return best;
+    }
+
+    /**
+     * Get a move that achieves the result found by the last solve().
+     * @return The column to play
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Get the number of positions the last solve() visited.
+     * @return The node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    // position holds the stones of the player to move; mask holds all
+    // stones.  Returns the value for the player to move, a lower bound
+    // if >= beta and an upper bound if <= alpha.
+    private int negamax (long position, long mask, int moves, int alpha, int beta)
+        throws TimeUpException {
+        arb.checkTime(++nodes);
+        if (moves == rows*cols) {
+            return DRAW;
+        }
+        long possible = (mask + bottom) & full;
+        for (int c=0; c<cols; c++) {
+            if ((possible & columnMask(c)) != 0 && isWinningMove(position,mask,c)) {
+                return WIN;
+            }
+        }
+        if (moves == rows*cols - 1) {
+            return DRAW;        // The last move is not a winning one.
+        }
+
+        // Moves the opponent would win with next turn.
+        long threats = winningCells(position ^ mask,mask);
+        long forced = possible & threats;
+        if (forced != 0) {
+            if ((forced & (forced-1)) != 0) {
+                return LOSS;    // Two threats at once; we can block only one.
+            }
+            possible = forced;
+        }
+        // Never play directly below an opponent's winning cell.
+        possible &= ~(threats >>> 1);
+        if (possible == 0) {
+            return LOSS;
+        }
+
+        long key = position + mask;
+        int slot = (int) (key ^ (key >>> TABLE_BITS)) & ((1 << TABLE_BITS) - 1);
+        if (tableValues[slot] != 0 && tableKeys[slot] == key) {
+            int upper = tableValues[slot] - 2;
+            if (upper < beta) {
+                beta = upper;
+                if (alpha >= beta) return beta;
+            }
+        }
+
+        for (int i=0; i<cols; i++) {
+            long move = possible & columnMask(centerOrder[i]);
+            if (move == 0) continue;
+            int v = -negamax(position ^ mask,mask | move,moves+1,-beta,-alpha);
+            if (v >= beta) return v;
+            if (v > alpha) alpha = v;
+        }
+        tableKeys[slot] = key;
+        tableValues[slot] = (byte) (alpha + 2);
+        return alpha;
+    }
+
+    private boolean canPlay (long mask, int col) {
+        return (mask & (1L << (col*height + rows-1))) == 0;
+    }
+
+    private boolean isWinningMove (long position, long mask, int col) {
+        long p = position | ((mask + columnBottom(col)) & columnMask(col));
+        return hasFour(p);
+    }
+
+    private long columnBottom (int col) {
+        return 1L << (col*height);
+    }
+
+    private long columnMask (int col) {
+        return ((1L << rows) - 1) << (col*height);
+    }
+
+    // Empty cells that would complete a connect 4 for the stones in p.
+    private long winningCells (long p, long mask) {
+        long r = 0;
+        // Vertical: three stacked stones with room above.
+        r |= (p << 1) & (p << 2) & (p << 3);
+        for (int d : lineSteps) {
+            long pair = (p << d) & (p << 2*d);
+            r |= pair & (p << 3*d);
+            r |= pair & (p >>> d);
+            pair = (p >>> d) & (p >>> 2*d);
+            r |= pair & (p << d);
+            r |= pair & (p >>> 3*d);
+        }
+        return r & (full ^ mask);
+    }
+
+    private boolean hasFour (long p) {
+        long m = p & (p >>> 1);
+        if ((m & (m >>> 2)) != 0) return true;
+        m = p & (p >>> height);
+        if ((m & (m >>> 2*height)) != 0) return true;
+        m = p & (p >>> (height+1));
+        if ((m & (m >>> 2*(height+1))) != 0) return true;
+        m = p & (p >>> (height-1));
+        return (m & (m >>> 2*(height-1))) != 0;
+    }
+}
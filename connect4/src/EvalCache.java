@@ -0,0 +1,180 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size cache of leaf evaluations, keyed by Connect4Board.key()
+ * and the player to move, so that a search can skip evaluating the
+ * positions it has already evaluated, such as the leaves of the last
+ * iterative deepening pass.
+ *
+ * The cache is set-associative: a key can only go in the WAYS slots of
+ * one bucket.  Each slot has a reference bit that is set when it is
+ * hit, and a full bucket is replaced by the clock algorithm, so the
+ * slot replaced is one that has not been hit since the hand last passed
+ * it.
+ *
+ * Like SharedTranspositionTable, each slot is two longs, the data word
+ * and the key XORed with the data word, so that threads can share a
+ * cache without locking: a slot that was half overwritten by another
+ * thread reads as a miss.  The reference bits, clock hands and counters
+ * are updated without synchronization and are only approximate when
+ * several threads share the cache.
+ *
+ * A cache must only be shared by searches that use the same kind of
+ * Evaluator.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class EvalCache
+{
+    // Returned by probe() when the position is not in the cache.  No
+    // evaluation is this small.
+    public static final int MISS = Integer.MIN_VALUE;
+
+    // Slots per bucket.
+    static final int WAYS = 4;
+
+    // Bytes used per slot: two longs and a reference bit.
+    private static final int SLOT_BYTES = 17;
+
+    // Set in every data word so that a used slot is never 0.
+    private static final long USED = 1L << 32;
+
+    // Mixed into the key when player #2 is to move.
+    private static final long PLAYER_2 = 0x9E3779B97F4A7C15L;
+
+    private final AtomicLongArray slots;
+    private final byte[] referenced;
+    private final byte[] hands;        // The clock hand of each bucket.
+    private final int mask;
+    private long probes, hits;
+
+    /**
+     * Create a cache that uses about the given amount of memory.  The
+     * number of buckets is rounded down to a power of two.
+     * @param megabytes Memory to use, at least 1
+     */
+    public EvalCache (int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("megabytes="+megabytes);
+        }
+        long n = Long.highestOneBit((long) megabytes * 1024 * 1024 / (SLOT_BYTES*WAYS));
+        n = Math.min(n,1 << 26);
+        this.slots = new AtomicLongArray((int) (2*WAYS*n));
+        this.referenced = new byte [(int) (WAYS*n)];
+        this.hands = new byte [(int) n];
+        this.mask = (int) n - 1;
+    }
+
+    /**
+     * Make a cache of the size in MB given by the connect4.evalcache.mb
+     * system property.
+     * @param defaultMegabytes The size if the property is not set
+     * @return The cache, or null if the size is 0
+     */
+    public static EvalCache fromProperty (int defaultMegabytes) {
+        int megabytes = Integer.getInteger("connect4.evalcache.mb",defaultMegabytes);
+        return megabytes > 0 ? new EvalCache(megabytes) : null;
+    }
+
+    /**
+     * Get the number of slots in the cache.
+     * @return The number of slots
+     */
+    public int size() {
+        return referenced.length;
+    }
+
+    /**
+     * Remove all entries and reset the counters.
+     */
+    public void clear() {
+        for (int i=0; i<slots.length(); i++) {
+            slots.setOpaque(i,0);
+        }
+        java.util.Arrays.fill(referenced,(byte) 0);
+        java.util.Arrays.fill(hands,(byte) 0);
+        probes = hits = 0;
+    }
+
+    /**
+     * Look up an evaluation.
+     * @param key The position key
+     * @param id The player to move
+     * @return The value stored for the position, or MISS
+     */
+    public int probe (long key, int id) {
+        if (id == 2) key ^= PLAYER_2;
+        int first = WAYS*((int) key & mask);
+        probes++;
+        for (int s=first; s<first+WAYS; s++) {
+            long d = slots.getOpaque(2*s+1);
+            if (d != 0 && (slots.getOpaque(2*s) ^ d) == key) {
+                hits++;
+                referenced[s] = 1;
+                return (int) d;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * Record an evaluation.
+     * @param key The position key
+     * @param id The player to move
+     * @param value The value of the position for player id
+     */
+    public void store (long key, int id, int value) {
+        if (id == 2) key ^= PLAYER_2;
+        int bucket = (int) key & mask;
+        int first = WAYS*bucket;
+        int s = -1;
+        for (int i=first; i<first+WAYS; i++) {
+            long d = slots.getOpaque(2*i+1);
+            if (d == 0 || (slots.getOpaque(2*i) ^ d) == key) {
+                s = i;
+                break;
+            }
+        }
+        if (s < 0) {
+            // Move the hand past the slots that were hit, clearing their
+            // bits, and replace the first one that was not.
+            int hand = hands[bucket];
+            while (referenced[first+hand] != 0) {
+                referenced[first+hand] = 0;
+                hand = (hand + 1) % WAYS;
+            }
+            s = first + hand;
+            hands[bucket] = (byte) ((hand + 1) % WAYS);
+        }
+        long d = USED | (value & 0xFFFFFFFFL);
+        referenced[s] = 0;
+        slots.setOpaque(2*s,key ^ d);
+        slots.setOpaque(2*s+1,d);
+    }
+
+    /**
+     * Get the number of calls to probe() since the cache was created or
+     * cleared.
+     * @return The number of probes
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * Get the number of probes that found their position.
+     * @return The number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of probes that did not find their position.
+     * @return The number of misses
+     */
+    public long getMisses() {
+        return probes - hits;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * A static evaluation for the leaves of a search.  An evaluator may keep
+ * its own copy of the position so that it can be updated a move at a
+ * time: reset() it to the root of a search, then tell it about every
+ * move() and unmove() made on the board, and evaluate() is only asked
+ * about the board it has followed.  Evaluators that read everything
+ * they need from the board can ignore the updates.
+ *
+ * An evaluator belongs to one search; searches running at the same time
+ * each need their own.
+ *
+ * @author Mickie Newman
+ *
+ */
+public interface Evaluator
+{
+    /**
+     * Start following a position.
+     * @param board The position
+     */
+    void reset (Connect4Board board);
+
+    /**
+     * Follow a move that was just made on the board.
+     * @param row The row the piece landed in
+     * @param col The column played
+     * @param id The player who moved
+     */
+    void move (int row, int col, int id);
+
+    /**
+     * Follow a move that is about to be taken back on the board.
+     * @param row The row of the piece
+     * @param col The column of the piece
+     * @param id The player who made the move
+     */
+    void unmove (int row, int col, int id);
+
+    /**
+     * Evaluate the position for the player to move.  The value for the
+     * other player is minus this.
+     * @param board The position, as followed since reset()
+     * @param id The player to move
+     * @return The value of the position for player id
+     */
+    int evaluate (Connect4Board board, int id);
+
+    /**
+     * Make the evaluator named by the connect4.eval system property:
+     * "threat" (the default) for ThreatEvaluator or "score" for
+     * ScoreEvaluator.
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @return A new evaluator
+     */
+    static Evaluator fromProperty (int rows, int cols) {
+        String name = System.getProperty("connect4.eval","threat");
+        switch (name) {
+            case "threat":
+                return new ThreatEvaluator(rows,cols);
+            case "score":
+                return new ScoreEvaluator();
+            default:
+                throw new IllegalArgumentException("connect4.eval=" + name);
+        }
+    }
+}
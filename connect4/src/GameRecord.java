@@ -0,0 +1,196 @@
+/**
+ * One finished game: the board size, the game, the players, the moves
+ * from the empty board (the random seed moves first) and the result.
+ * GameRecordWriter writes these and GameRecordReader reads them back.
+ *
+ * Players move in turn, except that the seed moves and the moves of
+ * the game itself each have their own first player: with match play
+ * the starting board is reversed, and the game decides who moves
+ * first.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class GameRecord
+{
+    private final int rows, cols;
+    private final String game;
+    private final String p1Name, p2Name;
+    private final int[] moves;
+    private final int numSeedMoves;
+    private final int firstSeedPlayer;
+    private final int firstPlayer;
+    private final int winner;
+    private final boolean forfeit;
+
+    /**
+     * Create a record.
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param game "first" or "most"
+     * @param p1Name Player #1's name
+     * @param p2Name Player #2's name
+     * @param moves The column of every move, seed moves first; the
+     *              array is not copied
+     * @param numSeedMoves How many of the moves are seed moves
+     * @param firstSeedPlayer The player who made the first seed move
+     * @param firstPlayer The player who made the first move after the
+     *                    seed moves
+     * @param winner The id of the winner, or 0 for a draw
+     * @param forfeit True if the loser made an illegal move or took too
+     *                long; that move is not in the record
+     */
+    public GameRecord (int rows, int cols, String game, String p1Name, String p2Name,
+                       int[] moves, int numSeedMoves, int firstSeedPlayer,
+                       int firstPlayer, int winner, boolean forfeit) {
+        if (!game.equals("first") && !game.equals("most")) {
+            throw new IllegalArgumentException("game=" + game);
+        }
+        if (numSeedMoves > moves.length || winner < 0 || winner > 2
+            || firstSeedPlayer < 1 || firstSeedPlayer > 2
+            || firstPlayer < 1 || firstPlayer > 2) {
+            throw new IllegalArgumentException();
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.game = game;
+        this.p1Name = p1Name;
+        this.p2Name = p2Name;
+        this.moves = moves;
+        this.numSeedMoves = numSeedMoves;
+        this.firstSeedPlayer = firstSeedPlayer;
+        this.firstPlayer = firstPlayer;
+        this.winner = winner;
+        this.forfeit = forfeit;
+    }
+
+    /**
+     * Get the number of rows.
+     * @return The number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns.
+     * @return The number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get which game was played.
+     * @return "first" or "most"
+     */
+    public String getGame() {
+        return game;
+    }
+
+    /**
+     * Get player #1's name.
+     * @return The name
+     */
+    public String getP1Name() {
+        return p1Name;
+    }
+
+    /**
+     * Get player #2's name.
+     * @return The name
+     */
+    public String getP2Name() {
+        return p2Name;
+    }
+
+    /**
+     * Get the number of moves, seed moves included.
+     * @return The number of moves
+     */
+    public int getNumMoves() {
+        return moves.length;
+    }
+
+    /**
+     * Get the number of random moves the game started with.
+     * @return The number of seed moves
+     */
+    public int getNumSeedMoves() {
+        return numSeedMoves;
+    }
+
+    /**
+     * Get a move.
+     * @param i The move number, from 0; seed moves come first
+     * @return The column of the move
+     */
+    public int getMove (int i) {
+        return moves[i];
+    }
+
+    /**
+     * Get the player who made a move.
+     * @param i The move number, from 0
+     * @return 1 or 2
+     */
+    public int getPlayer (int i) {
+        if (i < numSeedMoves) {
+            return (i % 2) == 0 ? firstSeedPlayer : 3 - firstSeedPlayer;
+        }
+        return ((i - numSeedMoves) % 2) == 0 ? firstPlayer : 3 - firstPlayer;
+    }
+
+    /**
+     * Get the player who made the first seed move.
+     * @return 1 or 2
+     */
+    public int getFirstSeedPlayer() {
+        return firstSeedPlayer;
+    }
+
+    /**
+     * Get the player who made the first move after the seed moves.
+     * @return 1 or 2
+     */
+    public int getFirstPlayer() {
+        return firstPlayer;
+    }
+
+    /**
+     * Get the result.
+     * @return The id of the winner, or 0 for a draw
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * Check if the game was lost by an illegal move or by taking too long.
+     * @return True for a forfeit
+     */
+    public boolean isForfeit() {
+        return forfeit;
+    }
+
+    /**
+     * Replay the start of the game.
+     * @param plies The number of moves to make, seed moves included
+     * @return The board after those moves
+     */
+    public Connect4Board replay (int plies) {
+        Connect4Board board = new Connect4Board(rows,cols);
+        for (int i=0; i<plies; i++) {
+            board.move(moves[i],getPlayer(i));
+        }
+        return board;
+    }
+
+    /**
+     * Replay the whole game.
+     * @return The board at the end of the game
+     */
+    public Connect4Board replay() {
+        return replay(moves.length);
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the games in a file written by GameRecordWriter, one at a time,
+ * so that a file of any size can be replayed without holding it all in
+ * memory.  See GameRecordWriter for the format.
+ *
+ * Run from the command line, it prints every game in a file.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class GameRecordReader
+{
+    private final DataInputStream in;
+    private final List<String> names = new ArrayList<String>();
+
+    /**
+     * Open a game record file.
+     * @param file The file name
+     * @throws IOException If the file cannot be read or is not a game
+     *         record file
+     */
+    public GameRecordReader (String file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != GameRecordWriter.MAGIC) {
+                throw new IOException(file + " is not a game record file");
+            }
+            int version = in.readUnsignedByte();
+            if (version != GameRecordWriter.VERSION) {
+                throw new IOException(file + " is version " + version
+                                      + ", not " + GameRecordWriter.VERSION);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the next game.
+     * @return The game, or null at the end of the file
+     * @throws IOException If the file cannot be read, or ends in the
+     *         middle of a record
+     */
+    public GameRecord next() throws IOException {
+        while (true) {
+            int type = in.read();
+            if (type < 0) {
+                return null;
+            }
+            try {
+                if (type == GameRecordWriter.NAME) {
+                    byte[] bytes = new byte [readVarint()];
+                    in.readFully(bytes);
+                    names.add(new String(bytes,StandardCharsets.UTF_8));
+                    continue;
+                }
+                if (type == GameRecordWriter.GAME) {
+                    return readGame();
+                }
+            } catch (EOFException e) {
+                throw new IOException("game record file is cut short");
+            }
+            throw new IOException("bad record type " + type);
+        }
+    }
+
+    private GameRecord readGame() throws IOException {
+        int rows = in.readUnsignedByte();
+        int cols = in.readUnsignedByte();
+        int flags = in.readUnsignedByte();
+        String p1 = name(readVarint());
+        String p2 = name(readVarint());
+        int numSeedMoves = readVarint();
+        int[] moves = new int [readVarint()];
+        if (moves.length > rows*cols || numSeedMoves > moves.length) {
+            throw new IOException("bad game record");
+        }
+        if (cols <= GameRecordWriter.NIBBLE_COLS) {
+            for (int i=0; i<moves.length; i+=2) {
+                int b = in.readUnsignedByte();
+                moves[i] = b >> 4;
+                if (i+1 < moves.length) moves[i+1] = b & 0xF;
+            }
+        } else {
+            for (int i=0; i<moves.length; i++) {
+                moves[i] = in.readUnsignedByte();
+            }
+        }
+        int winner = (flags >> GameRecordWriter.WINNER_SHIFT) & 3;
+        if (winner > 2) {
+            throw new IOException("bad game record");
+        }
+        return new GameRecord(rows,cols,
+                              (flags & GameRecordWriter.FIRST_GAME) != 0 ? "first" : "most",
+                              p1,p2,moves,numSeedMoves,
+                              (flags & GameRecordWriter.SEED_PLAYER_2) != 0 ? 2 : 1,
+                              (flags & GameRecordWriter.PLAYER_2) != 0 ? 2 : 1,
+                              winner,(flags & GameRecordWriter.FORFEIT) != 0);
+    }
+
+    private String name (int i) throws IOException {
+        if (i >= names.size()) {
+            throw new IOException("bad player name " + i);
+        }
+        return names.get(i);
+    }
+
+    private int readVarint() throws IOException {
+        int v = 0;
+        for (int shift=0; shift<32; shift+=7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IOException("bad varint");
+    }
+
+    /**
+     * Get the player names read so far, in the order they were added to
+     * the file.
+     * @return The names
+     */
+    public List<String> getPlayerNames() {
+        return names;
+    }
+
+    /**
+     * Close the file.
+     * @throws IOException If the file cannot be closed
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Print program usage and exit.
+    private static void usage() {
+        System.err.println();
+        System.err.println("usage: GameRecordReader [options] file");
+        System.err.println();
+        System.err.println(" q - Quiet: only print the totals.");
+        System.err.println();
+        System.exit(1);
+    }
+
+    public static void main (String[] args) throws IOException {
+        boolean quiet = false;
+        String file = null;
+        for (int i=0; i<args.length; i++) {
+            if (args[i].equals("-q")) {
+                quiet = true;
+                continue;
+            }
+            if (file != null || args[i].startsWith("-")) usage();
+            file = args[i];
+        }
+        if (file == null) usage();
+
+        GameRecordReader reader = new GameRecordReader(file);
+        long games = 0, moves = 0;
+        long[] wins = new long [3];
+        try {
+            for (GameRecord r = reader.next(); r != null; r = reader.next()) {
+                games++;
+                moves += r.getNumMoves();
+                wins[r.getWinner()]++;
+                if (quiet) continue;
+                StringBuilder s = new StringBuilder();
+                s.append("game ").append(games).append(": ")
+                    .append(r.getP1Name()).append(" vs ").append(r.getP2Name())
+                    .append(", ").append(r.getRows()).append('x').append(r.getCols())
+                    .append(' ').append(r.getGame()).append(", moves");
+                for (int i=0; i<r.getNumMoves(); i++) {
+                    s.append(i > 0 && i == r.getNumSeedMoves() ? " | " : " ").append(r.getMove(i));
+                }
+                s.append(", ").append(r.getWinner() == 0 ? "draw" : "player #" + r.getWinner() + " wins");
+                if (r.isForfeit()) s.append(" by forfeit");
+                System.out.println(s);
+            }
+        } finally {
+            reader.close();
+        }
+        System.out.println(games + " games, " + moves + " moves, player #1 won "
+                           + wins[1] + ", player #2 won " + wins[2] + ", " + wins[0] + " draws");
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends finished games to a game record file, for GameRecordReader
+ * to read back.  A game is written only once it is over, so the file
+ * never holds half a game.  Opening a file that already exists adds to
+ * the end of it.
+ *
+ * The file is a header (MAGIC, then VERSION) followed by records, each
+ * starting with its type:
+ *
+ *   NAME  varint length, UTF-8 bytes: the next entry of the player
+ *         name table, written the first time a name is used
+ *   GAME  byte rows, byte cols, byte flags, varint p1 name, varint p2
+ *         name, varint seed moves, varint moves, then the columns
+ *
+ * Varints are unsigned, 7 bits per byte, low bits first.  The flags are
+ * bit 0 for a "first" game, bits 1-2 the winner, bit 3 a forfeit, bit 4
+ * if player 2 made the first seed move and bit 5 if player 2 made the
+ * first move after the seed moves.  Columns are packed two to a byte,
+ * high nibble first, on boards of up to 16 columns, and one to a byte
+ * otherwise.  A game of 6x7 Connect-4 takes about 29 bytes.
+ *
+ * The writer can be used two ways: write() a whole GameRecord, or
+ * startGame(), move() for every move and endGame() as a game is played.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class GameRecordWriter
+{
+    static final int MAGIC = 0x43344752;    // "C4GR"
+    static final int VERSION = 1;
+    static final int NAME = 1;
+    static final int GAME = 2;
+
+    // Flag bits.
+    static final int FIRST_GAME = 1;
+    static final int WINNER_SHIFT = 1;
+    static final int FORFEIT = 1 << 3;
+    static final int SEED_PLAYER_2 = 1 << 4;
+    static final int PLAYER_2 = 1 << 5;
+
+    // Boards with up to this many columns pack two moves to a byte.
+    static final int NIBBLE_COLS = 16;
+
+    private final DataOutputStream out;
+    private final Map<String,Integer> names = new HashMap<String,Integer>();
+
+    // The game being played, between startGame() and endGame().
+    private int rows, cols;
+    private String game;
+    private String p1Name, p2Name;
+    private int[] moves;
+    private int numMoves;
+    private int numSeedMoves;
+    private int firstSeedPlayer, firstPlayer;
+
+    /**
+     * Open a game record file, creating it if it does not exist.
+     * @param file The file name
+     * @throws IOException If the file cannot be read or written, or is
+     *         not a game record file
+     */
+    public GameRecordWriter (String file) throws IOException {
+        boolean exists = new File(file).length() > 0;
+        if (exists) {
+            // Learn the name table so far; new names are added after it.
+            GameRecordReader reader = new GameRecordReader(file);
+            try {
+                while (reader.next() != null) {
+                }
+                for (String name : reader.getPlayerNames()) {
+                    names.put(name,names.size());
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file,true)));
+        if (!exists) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.flush();
+        }
+    }
+
+    /**
+     * Open the file named by the connect4.record system property.
+     * @return The writer, or null if the property is not set
+     * @throws IOException If the file cannot be opened
+     */
+    public static GameRecordWriter fromProperty() throws IOException {
+        String file = System.getProperty("connect4.record");
+        return file == null ? null : new GameRecordWriter(file);
+    }
+
+    /**
+     * Start recording a game.  Any game that was started but not ended
+     * is dropped.
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param game "first" or "most"
+     * @param p1Name Player #1's name
+     * @param p2Name Player #2's name
+     * @param seedMoves The columns of the random moves the game starts
+     *                  with
+     * @param firstSeedPlayer The player who made the first seed move
+     * @param firstPlayer The player who moves first after them
+     */
+    public void startGame (int rows, int cols, String game, String p1Name, String p2Name,
+                           int[] seedMoves, int firstSeedPlayer, int firstPlayer) {
+        this.rows = rows;
+        this.cols = cols;
+        this.game = game;
+        this.p1Name = p1Name;
+        this.p2Name = p2Name;
+        this.moves = new int [rows*cols];
+        System.arraycopy(seedMoves,0,moves,0,seedMoves.length);
+        this.numMoves = this.numSeedMoves = seedMoves.length;
+        this.firstSeedPlayer = firstSeedPlayer;
+        this.firstPlayer = firstPlayer;
+    }
+
+    /**
+     * Record the next move of the game.
+     * @param col The column played
+     */
+    public void move (int col) {
+        if (moves == null) {
+            throw new IllegalStateException("no game started");
+        }
+        moves[numMoves++] = col;
+    }
+
+    /**
+     * Finish recording the game and write it.
+     * @param winner The id of the winner, or 0 for a draw
+     * @param forfeit True if the loser made an illegal move or took too long
+     * @throws IOException If the game cannot be written
+     */
+    public void endGame (int winner, boolean forfeit) throws IOException {
+        if (moves == null) {
+            throw new IllegalStateException("no game started");
+        }
+        int[] played = new int [numMoves];
+        System.arraycopy(moves,0,played,0,numMoves);
+        moves = null;
+        write(new GameRecord(rows,cols,game,p1Name,p2Name,played,numSeedMoves,
+                             firstSeedPlayer,firstPlayer,winner,forfeit));
+    }
+
+    /**
+     * Write a game.
+     * @param r The game
+     * @throws IOException If the game cannot be written
+     */
+    public synchronized void write (GameRecord r) throws IOException {
+        if (r.getRows() > 255 || r.getCols() > 255) {
+            throw new IOException("board too big to record");
+        }
+        int p1 = nameIndex(r.getP1Name());
+        int p2 = nameIndex(r.getP2Name());
+        int flags = (r.getWinner() << WINNER_SHIFT);
+        if (r.getGame().equals("first")) flags |= FIRST_GAME;
+        if (r.isForfeit()) flags |= FORFEIT;
+        if (r.getFirstSeedPlayer() == 2) flags |= SEED_PLAYER_2;
+        if (r.getFirstPlayer() == 2) flags |= PLAYER_2;
+
+        out.writeByte(GAME);
+        out.writeByte(r.getRows());
+        out.writeByte(r.getCols());
+        out.writeByte(flags);
+        writeVarint(p1);
+        writeVarint(p2);
+        writeVarint(r.getNumSeedMoves());
+        writeVarint(r.getNumMoves());
+        int n = r.getNumMoves();
+        if (r.getCols() <= NIBBLE_COLS) {
+            for (int i=0; i<n; i+=2) {
+                int hi = r.getMove(i);
+                int lo = i+1 < n ? r.getMove(i+1) : 0;
+                out.writeByte((hi << 4) | lo);
+            }
+        } else {
+            for (int i=0; i<n; i++) {
+                out.writeByte(r.getMove(i));
+            }
+        }
+        out.flush();
+    }
+
+    // The index of a name in the table, adding it if it is new.
+    private int nameIndex (String name) throws IOException {
+        Integer i = names.get(name);
+        if (i != null) {
+            return i;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(NAME);
+        writeVarint(bytes.length);
+        out.write(bytes);
+        names.put(name,names.size());
+        return names.size() - 1;
+    }
+
+    private void writeVarint (int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    /**
+     * Close the file.  A game that was started but not ended is dropped.
+     * @throws IOException If the file cannot be closed
+     */
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -100,7 +100,8 @@ public class Greedyplayer implements Player {
 	/**
 	 * calcScore : this figures out if you scored a point by finding how many times 
 	 * there are 4 player moves that are right next to each other in a line, either horizontally
-	 * virtecally or diagonally. it then adds up all the occurances and returns the total score
+	 * virtecally or diagonally. the board keeps a running count of these as moves are made
+	 * and unmade so this does not need to scan the board
 	 *   
 	 * 
 	 * @param board a Connect4Board object that shows the configuration of the board
@@ -108,59 +109,7 @@ public class Greedyplayer implements Player {
 	 * @return score an int that is the total number of times the player has 4 tiles in a row
 	 */
 	public int calcScore(Connect4Board board, int id) {
-		
-		
-		final int rows = board.numRows();
-		final int cols = board.numCols();
-				
-		int score = 0;
-		
-		 
-		//horizontal
-		for(int r=0; r<rows; r++) {
-			for(int c=0; c<=cols - 4; c++) {
-				if(board.get(r, c+0) != id) continue;
-				if(board.get(r, c+1)!= id) continue;
-				if(board.get(r, c+2)!= id) continue;
-				if(board.get(r, c+3)!= id) continue;
-				score++;
-		
-			}
-		}
-		//vertical 
-		for(int c = 0; c<cols;c++) {
-			for(int r=0;r<=rows-4;r++) {
-				if(board.get(r+0, c)!= id)continue;
-				if(board.get(r+1, c)!= id)continue;
-				if(board.get(r+2, c)!= id)continue;
-				if(board.get(r+3, c)!= id)continue;
-				score++;
-				
-				
-			}
-		}
-		//diagonal 
-		for(int c = 0; c<=cols-4;c++) {
-			for(int r=0;r<=rows-4;r++) {
-				if(board.get(r+0, c+0)!= id)continue;
-				if(board.get(r+1, c+1)!= id)continue;
-				if(board.get(r+2, c+2)!= id)continue;
-				if(board.get(r+3, c+3)!= id)continue;
-				score++;
-				
-			}
-		}
-		for(int c = 0; c<=cols-4;c++) {
-			for(int r=rows-1;r>= 3;r--) {
-				if(board.get(r-0, c+0)!= id)continue;
-				if(board.get(r-1, c+1)!= id)continue;
-				if(board.get(r-2, c+2)!= id)continue;
-				if(board.get(r-3, c+3)!= id)continue;
-				score++;
-				
-			}
-		}
-		return score;
+		return board.score(id);
 	}
 
 
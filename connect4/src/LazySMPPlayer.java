@@ -0,0 +1,187 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a player that uses "lazy SMP": several threads all search the same
+ * position at the same time, each with its own SearchEngine, and share what they learn
+ * through one lock free transposition table. the helper threads start at staggered depths
+ * so they fill the table with results the main thread is about to need.
+ *
+ * the main thread (the one calcMove is called on) does normal iterative deepening and
+ * reports through Arbitrator.setMove. if a helper finishes a deeper search than the main
+ * thread, its move is used instead.
+ *
+ * the number of threads (main thread included) comes from the constructor or the
+ * connect4.threads system property (default: one per processor). the helper threads
+ * belong to this player and stop when the game closes it.
+ * run with -Dconnect4.evalcache.mb=size to give the threads a shared cache of leaf values (default 0, off).
+ *
+ * @author Mickie Newman
+ */
+public class LazySMPPlayer implements Player {
+	private final int threads;
+	private ForkJoinPool pool;// the helpers, made by init and shut down by close
+	private int id;
+	private SharedTranspositionTable tt;
+	private SearchEngine[] engines;// engines[0] is the main thread's
+	private boolean verbose;
+
+	/**
+	 * creates a player that uses the connect4.threads system property or one thread per processor
+	 */
+	public LazySMPPlayer() {
+		this(SearchPools.defaultThreads());
+	}
+	/**
+	 * creates a player that searches with a given number of threads
+	 *
+	 * @param threads the number of threads to search with, at least 1
+	 */
+	public LazySMPPlayer(int threads) {
+		if(threads < 1)
+			throw new IllegalArgumentException("threads=" + threads);
+		this.threads = threads;
+	}
+	/**
+	 * sets name of the player
+	 *
+	 * @return string the players name
+	 */
+	public String name() {
+		return "LazySMP x" + threads;
+	}
+	/**
+	 * init: sets the id and makes the helper threads, the shared transposition table and one search engine
+	 * and evaluator per thread. the table size in MB comes from the connect4.tt.mb system property (default 16)
+	 *
+	 * @param id The id of the player
+	 * @param msecPerMove miliseconds per move
+	 * @param rows number of rows in the connect 4 board
+	 * @param cols number of collumns in the connect 4 board
+	 */
+	public void init(int id, int msecPerMove, int rows, int cols) {
+		this.id = id;
+		close();
+		this.pool = threads > 1 ? new ForkJoinPool(threads - 1) : null;
+		this.tt = new SharedTranspositionTable(Math.max(1, Integer.getInteger("connect4.tt.mb", 16)));
+		this.engines = new SearchEngine[threads];
+		EvalCache evalCache = EvalCache.fromProperty(0);// the threads share it like the table
+		for(int i = 0; i < threads; i++) {
+			engines[i] = new SearchEngine(rows, cols, tt);
+			engines[i].setEvaluator(Evaluator.fromProperty(rows, cols));// each thread needs its own
+			engines[i].setEvalCache(evalCache);
+		}
+		this.verbose = Boolean.getBoolean("connect4.verbose");
+	}
+	/**
+	 * close: shuts down the helper threads at the end of the game
+	 */
+	public void close() {
+		if(pool != null) {
+			pool.shutdownNow();
+			pool = null;
+		}
+	}
+	/**
+	 * calcMove: starts the helpers, does iterative deepening on this thread and stops the
+	 * helpers again before returning, even when time runs out
+	 *
+	 * @param board a Connect4 object the board configuration of the connect4 board
+	 * @param oppMoveCol an int the collumn of your opponents most recent move
+	 * @param arb an arbitrator object
+	 */
+	public void calcMove(Connect4Board board, int oppMoveCol, Arbitrator arb) throws TimeUpException{
+		if(board.isFull())
+			throw new Error("Error: the board is full!!!");
+
+		tt.newSearch();// once, all the engines share it
+		for(SearchEngine engine : engines)
+			engine.newSearch();
+		long startNodes = totalNodes();
+		long startMainNodes = engines[0].getTotalNodes();
+		long startTime = System.nanoTime();
+
+		// the deepest finished helper search, packed as depth << 8 | move
+		AtomicLong helperResult = new AtomicLong(-1);
+		// the helpers stop when this times out, which happens when we return
+		Arbitrator stop = new Arbitrator();
+		List<Future<?>> helpers = new ArrayList<Future<?>>();
+		for(int i = 1; i < threads; i++) {
+			final SearchEngine engine = engines[i];
+			final int firstDepth = 1 + (i % 2);
+			helpers.add(pool.submit(() -> helperSearch(engine, new Connect4Board(board), firstDepth, helperResult, stop)));
+		}
+
+		int searchDepth = 1;
+		try {
+			while(!arb.isTimeUp() && searchDepth <= board.numEmptyCells()) {
+				engines[0].search(board, id, searchDepth, arb);
+				int move = engines[0].getBestMove();
+				long helper = helperResult.get();
+				if(helper >= 0 && (helper >> 8) > searchDepth)
+					move = (int) (helper & 0xFF);
+				arb.setMove(move);
+				arb.getStats().setDepth(searchDepth);
+				searchDepth++;
+			}
+		}
+		finally {
+			stop.timeUp();
+			for(Future<?> f : helpers) {
+				try {
+					f.get();
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				catch(ExecutionException e) {
+					throw new Error(e.getCause());
+				}
+			}
+			// the main engine reports its own nodes, the helpers report to stop
+			arb.getStats().addNodes(totalNodes() - startNodes - (engines[0].getTotalNodes() - startMainNodes));
+			if(verbose) {
+				double seconds = (System.nanoTime() - startTime) / 1e9;
+				System.err.printf("%s: completed depth %d, %.0f nodes/sec%n",
+						name(), searchDepth - 1, (totalNodes() - startNodes) / seconds);
+			}
+		}
+	}
+	/**
+	 * helperSearch: iterative deepening on a helper thread until it is told to stop.
+	 * the values it finds only matter through the shared transposition table, but it
+	 * also records its deepest finished search in case it gets deeper than the main thread
+	 *
+	 * @param engine the helpers own engine
+	 * @param board the helpers own copy of the board
+	 * @param depth the depth to start at
+	 * @param result the deepest finished helper search, packed as depth << 8 | move
+	 * @param stop times out when the helper should stop
+	 */
+	private void helperSearch(SearchEngine engine, Connect4Board board, int depth, AtomicLong result, Arbitrator stop) {
+		try {
+			for(; depth <= board.numEmptyCells(); depth++) {
+				engine.search(board, id, depth, stop);
+				long packed = ((long) depth << 8) | engine.getBestMove();
+				result.accumulateAndGet(packed, Math::max);
+			}
+		}
+		catch(TimeUpException e) {
+		}
+	}
+	/**
+	 * totalNodes: the number of nodes all the engines have searched
+	 *
+	 * @return the node count
+	 */
+	private long totalNodes() {
+		long nodes = 0;
+		for(SearchEngine engine : engines)
+			nodes += engine.getTotalNodes();
+		return nodes;
+	}
+}
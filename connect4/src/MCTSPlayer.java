@@ -0,0 +1,271 @@
+import java.util.SplittableRandom;
+
+/**
+ * This class is a player that uses Monte Carlo tree search (UCT) instead of minimax.
+ * every iteration walks down the tree picking the child with the best upper confidence bound,
+ * adds the children of the node it ends at, plays random moves from there to the end of the game
+ * and counts the result in every node on the way down. the move it plays is the root child that
+ * was visited the most.
+ *
+ * the tree is kept in arrays of numbers (visits, wins, first child, next sibling and move) that
+ * are made once in init, so nothing is allocated while searching. when the arrays are full the
+ * tree stops growing and the iterations carry on from the leaves it has.
+ * the size comes from the connect4.mcts.nodes system property (default 2097152 nodes, about 34 MB).
+ *
+ * run with -Dconnect4.verbose=true to print the playouts and the chosen move after every move.
+ *
+ * @author Mickie Newman
+ */
+public class MCTSPlayer implements Player {
+	// how much UCT favors nodes that have had few visits
+	private static final double EXPLORATION = Math.sqrt(2);
+	// iterations between looking at the clock and setting the best move so far
+	private static final int CHECK_INTERVAL = 1024;
+
+	private int id;
+	private int cols;
+	private int msecPerMove;
+	private boolean firstGame;// true when the first connect 4 wins, set by setGame
+	private boolean verbose;
+	private SplittableRandom rand;// only used by the thread calcMove is called on
+	private Connect4Board scratch;// the board each iteration plays on
+	private int[] centerOrder;// columns, center first
+	private int[] openCols;// columns that are not full during a playout
+	private int[] path;// the nodes an iteration went through, root first
+
+	// the tree. node 0 is the root, each node is the position after its move
+	private int[] visits;
+	private float[] wins;// for the player who made the node's move, draws count a half
+	private int[] firstChild;// -1 until the node has been expanded
+	private int[] sibling;// the next child of the same parent, -1 for the last one
+	private byte[] move;// the column played to get to the node
+	private int numNodes;
+	/**
+	 * sets name of the player
+	 *
+	 * @return string the players name
+	 */
+	public String name() {
+		return "MCTS";
+	}
+	/**
+	 * init: sets the id and makes the tree arrays and everything else the search needs
+	 *
+	 * @param id The id of the player
+	 * @param msecPerMove miliseconds per move
+	 * @param rows number of rows in the connect 4 board
+	 * @param cols number of collumns in the connect 4 board
+	 */
+	public void init(int id, int msecPerMove, int rows, int cols) {
+		this.id = id;
+		this.cols = cols;
+		this.msecPerMove = msecPerMove;
+		this.verbose = Boolean.getBoolean("connect4.verbose");
+		this.rand = new SplittableRandom();
+		this.scratch = new Connect4Board(rows, cols);
+		this.centerOrder = new int[cols];
+		for(int i = 0; i < cols; i++) {
+			int offset = (i + 1) / 2;
+			centerOrder[i] = (cols - 1) / 2 + ((i % 2) == 1 ? offset : -offset);
+		}
+		this.openCols = new int[cols];
+		this.path = new int[rows * cols + 1];
+		int capacity = Math.max(cols + 1, Integer.getInteger("connect4.mcts.nodes", 1 << 21));
+		this.visits = new int[capacity];
+		this.wins = new float[capacity];
+		this.firstChild = new int[capacity];
+		this.sibling = new int[capacity];
+		this.move = new byte[capacity];
+	}
+	/**
+	 * setGame: remembers if this is a "first" game, where a playout ends at the first connect 4
+	 *
+	 * @param game "first" or "most"
+	 */
+	public void setGame(String game) {
+		this.firstGame = "first".equals(game);
+	}
+	/**
+	 * calcMove: runs iterations until the time for the move is used up. the most visited move
+	 * is set every CHECK_INTERVAL iterations so there is always a move when time runs out
+	 *
+	 * @param board a Connect4 object the board configuration of the connect4 board
+	 * @param oppMoveCol an int the collumn of your opponents most recent move
+	 * @param arb an arbitrator object
+	 */
+	public void calcMove(Connect4Board board, int oppMoveCol, Arbitrator arb) throws TimeUpException{
+		if(board.isFull())
+			throw new Error("Error: the board is full!!!");
+
+		long stopAt = Math.min(System.nanoTime() + msecPerMove * 1000000L, arb.getDeadline());
+		numNodes = 1;
+		visits[0] = 0;
+		wins[0] = 0;
+		firstChild[0] = -1;
+		sibling[0] = -1;
+		expand(0, board);
+		arb.setMove(move[bestChild()]);
+
+		long playouts = 0;
+		int maxDepth = 0;
+		try {
+			while(!arb.isTimeUp()) {
+				maxDepth = Math.max(maxDepth, iterate(board));
+				playouts++;
+				if(playouts % CHECK_INTERVAL == 0) {
+					arb.setMove(move[bestChild()]);
+					if(System.nanoTime() - stopAt >= 0)
+						break;
+				}
+			}
+			arb.setMove(move[bestChild()]);
+		}
+		finally {
+			arb.getStats().addNodes(playouts);
+			arb.getStats().setDepth(maxDepth);
+			if(verbose) {
+				int best = bestChild();
+				System.err.printf("%s: %d playouts, %d nodes, depth %d, col %d won %.1f%% of %d visits%n",
+						name(), playouts, numNodes, maxDepth, move[best],
+						visits[best] > 0 ? 100.0 * wins[best] / visits[best] : 0.0, visits[best]);
+			}
+		}
+	}
+	/**
+	 * iterate: one iteration. it goes down the tree from the root, expands the node it ends at
+	 * if that node was already visited, finishes the game with random moves and counts the
+	 * result in every node on the path
+	 *
+	 * @param board the board at the root
+	 * @return the number of tree moves the iteration made before the playout
+	 */
+	private int iterate(Connect4Board board) {
+		scratch.copy(board);
+		int node = 0;
+		int toMove = id;
+		int length = 0;
+		path[length++] = 0;
+		int winner = -1;// -1 while the game is still going
+		while(true) {
+			if(firstChild[node] < 0) {
+				// a leaf, grow the tree here the second time we get to it
+				if(visits[node] == 0 || numNodes + cols > visits.length)
+					break;
+				expand(node, scratch);
+			}
+			node = selectChild(node);
+			scratch.move(move[node], toMove);
+			path[length++] = node;
+			if(firstGame && scratch.score(toMove) > 0) {
+				winner = toMove;
+				break;
+			}
+			toMove = 3 - toMove;
+			if(scratch.isFull())
+				break;
+		}
+		if(winner < 0)
+			winner = playout(toMove);
+
+		// the node at path[k] was made by us when k is odd
+		visits[0]++;
+		for(int k = 1; k < length; k++) {
+			int n = path[k];
+			int mover = (k % 2) == 1 ? id : 3 - id;
+			visits[n]++;
+			if(winner == mover)
+				wins[n] += 1;
+			else if(winner == 0)
+				wins[n] += 0.5f;
+		}
+		return length - 1;
+	}
+	/**
+	 * expand: adds a child for every move from a node, center first
+	 *
+	 * @param node the node to expand
+	 * @param board the board at the node
+	 */
+	private void expand(int node, Connect4Board board) {
+		int last = -1;
+		for(int i = 0; i < cols; i++) {
+			int col = centerOrder[i];
+			if(board.isColumnFull(col))
+				continue;
+			int child = numNodes++;
+			visits[child] = 0;
+			wins[child] = 0;
+			firstChild[child] = -1;
+			sibling[child] = -1;
+			move[child] = (byte) col;
+			if(last < 0)
+				firstChild[node] = child;
+			else
+				sibling[last] = child;
+			last = child;
+		}
+	}
+	/**
+	 * selectChild: the child with the highest upper confidence bound, its win rate plus a bonus
+	 * that shrinks the more it is visited. a child that was never visited is picked first
+	 *
+	 * @param node the node to pick a child of
+	 * @return the child
+	 */
+	private int selectChild(int node) {
+		double logVisits = Math.log(visits[node]);
+		int best = -1;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for(int c = firstChild[node]; c >= 0; c = sibling[c]) {
+			if(visits[c] == 0)
+				return c;
+			double value = wins[c] / visits[c] + EXPLORATION * Math.sqrt(logVisits / visits[c]);
+			if(value > bestValue) {
+				bestValue = value;
+				best = c;
+			}
+		}
+		return best;
+	}
+	/**
+	 * bestChild: the root child that was visited the most, ties go to the one that won more
+	 *
+	 * @return the child
+	 */
+	private int bestChild() {
+		int best = firstChild[0];
+		for(int c = sibling[best]; c >= 0; c = sibling[c]) {
+			if(visits[c] > visits[best] || (visits[c] == visits[best] && wins[c] > wins[best]))
+				best = c;
+		}
+		return best;
+	}
+	/**
+	 * playout: plays random moves on the scratch board to the end of the game
+	 *
+	 * @param toMove the player to move
+	 * @return the winner, or 0 for a draw
+	 */
+	private int playout(int toMove) {
+		int numOpen = 0;
+		for(int col = 0; col < cols; col++) {
+			if(!scratch.isColumnFull(col))
+				openCols[numOpen++] = col;
+		}
+		while(numOpen > 0) {
+			int i = rand.nextInt(numOpen);
+			int col = openCols[i];
+			scratch.move(col, toMove);
+			if(firstGame && scratch.score(toMove) > 0)
+				return toMove;
+			if(scratch.isColumnFull(col))
+				openCols[i] = openCols[--numOpen];
+			toMove = 3 - toMove;
+		}
+		if(firstGame)
+			return 0;
+		int myScore = scratch.score(id);
+		int oppScore = scratch.score(3 - id);
+		return myScore > oppScore ? id : oppScore > myScore ? 3 - id : 0;
+	}
+}
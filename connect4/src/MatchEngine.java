@@ -0,0 +1,335 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * Plays a match between two players with no GUI and no delays between
+ * moves.  The games are run the same way as Connect4Game runs them:
+ * new player objects every game, players take turns going first, the
+ * same time limit through PlayerRunner, and with match play every even
+ * game starts from the previous game's board with the colors reversed.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class MatchEngine
+{
+	private final int rows, cols;
+	private final String game;
+	private final int msecPerMove;
+	private final int numGames;
+	private final int numSeedMoves;
+	private final boolean matchPlay;
+	private final Class<? extends Player> p1Class, p2Class;
+
+	private Random rand = new Random();
+	private PrintStream log;
+	private SearchStatsLog statsLog;
+	private GameRecordWriter record;
+	private boolean ponder;
+
+	// Results so far.
+	private Connect4Board startingBoard;
+	private int[] seedMoves;		// The columns of the starting board's moves,
+	private int seedPlayer;			// made by this player first.
+	private int gamesPlayed;
+	private int p1GamesWon, p2GamesWon, draws;
+	private int p1Forfeits, p2Forfeits;
+	private String p1Name, p2Name;
+	private final SearchStats p1Stats = new SearchStats();
+	private final SearchStats p2Stats = new SearchStats();
+
+	public MatchEngine(int rows, int cols, String game, int msecPerMove,
+			int numGames, int numRandMoves, boolean matchPlay,
+			String p1ClassName, String p2ClassName)
+		throws ReflectiveOperationException
+	{
+		assert ((numRandMoves % 2) == 0);
+		assert (numRandMoves >= 0);
+		assert (numRandMoves <= rows * cols);
+		assert (rows >= 4);
+		assert (cols >= 4);
+		assert (numGames > 0);
+		assert (msecPerMove >= 0);
+		assert (game.equals("first") || game.equals("most"));
+
+		this.rows = rows;
+		this.cols = cols;
+		this.game = game;
+		this.msecPerMove = msecPerMove;
+		this.numGames = numGames;
+		this.numSeedMoves = numRandMoves;
+		this.matchPlay = matchPlay;
+		this.p1Class = playerClass(p1ClassName);
+		this.p2Class = playerClass(p2ClassName);
+	}
+
+	// Load a player class so that a bad name fails before any games.
+	private static Class<? extends Player> playerClass(String className)
+		throws ClassNotFoundException
+	{
+		ClassLoader loader = ClassLoader.getSystemClassLoader();
+		return loader.loadClass(className).asSubclass(Player.class);
+	}
+
+	/**
+	 * Seed the random moves that start each game, so a match can be
+	 * played again with the same starting boards.
+	 *
+	 * @param seed the random seed
+	 */
+	public void setSeed(long seed)
+	{
+		rand = new Random(seed);
+	}
+
+	/**
+	 * Print a line for every game to a stream.
+	 *
+	 * @param log where to print, or null for nothing
+	 */
+	public void setLog(PrintStream log)
+	{
+		this.log = log;
+	}
+
+	/**
+	 * Record what the players report about their searches, move by
+	 * move.
+	 *
+	 * @param statsLog where to record, or null for nowhere
+	 */
+	public void setStatsLog(SearchStatsLog statsLog)
+	{
+		this.statsLog = statsLog;
+	}
+
+	/**
+	 * Append every game to a game record file.
+	 *
+	 * @param record where to write the games, or null for nowhere
+	 */
+	public void setRecord(GameRecordWriter record)
+	{
+		this.record = record;
+	}
+
+	/**
+	 * Let players that implement Ponderer think on their opponent's
+	 * time.  Both players get the same setting; see
+	 * PlayerRunner.canPonder() for when that is fair.
+	 *
+	 * @param ponder true to let the players ponder
+	 */
+	public void setPonder(boolean ponder)
+	{
+		this.ponder = ponder;
+	}
+
+	/**
+	 * Play all the games of the match.
+	 *
+	 * @throws ReflectiveOperationException if a player cannot be created
+	 */
+	public void play() throws ReflectiveOperationException
+	{
+		while (gamesPlayed < numGames) {
+			playGame();
+		}
+	}
+
+	/**
+	 * Play the next game of the match.
+	 *
+	 * @return the id of the winner, or 0 for a draw
+	 * @throws ReflectiveOperationException if a player cannot be created
+	 * @throws UncheckedIOException if the game cannot be recorded
+	 */
+	public int playGame() throws ReflectiveOperationException
+	{
+		int gameNum = gamesPlayed + 1;
+		if (matchPlay && (gameNum % 2) == 0) {
+			startingBoard.reverse();
+			seedPlayer = 3 - seedPlayer;
+		}
+		else {
+			startingBoard = newBoard(numSeedMoves);
+		}
+		Connect4Board board = new Connect4Board(startingBoard);
+
+		Player p1 = p1Class.getDeclaredConstructor().newInstance();
+		Player p2 = p2Class.getDeclaredConstructor().newInstance();
+		p1.init(1, msecPerMove, rows, cols);
+		p2.init(2, msecPerMove, rows, cols);
+		p1.setGame(game);
+		p2.setGame(game);
+		p1Name = p1.name();
+		p2Name = p2.name();
+		PlayerRunner[] runners = { null, new PlayerRunner(p1), new PlayerRunner(p2) };
+		runners[1].setGame(1, game);
+		runners[2].setGame(2, game);
+		runners[1].setPonder(ponder);
+		runners[2].setPonder(ponder);
+
+		int whoseTurn = 2 - (gameNum % 2);
+		int prevMoveCol = -1;
+		int moveNum = 0;
+		boolean forfeit = false;
+		int winner = calcWinner(board);
+		if (record != null) {
+			record.startGame(rows, cols, game, p1Name, p2Name, seedMoves, seedPlayer, whoseTurn);
+		}
+		try {
+			while (winner < 0) {
+				int moveCol = runners[whoseTurn].calcMove(board, prevMoveCol, msecPerMove);
+				moveNum++;
+				if (statsLog != null) {
+					statsLog.move(gameNum, moveNum, whoseTurn, runners[whoseTurn].getPlayer().name(),
+							moveCol, runners[whoseTurn].getLastStats());
+				}
+				// An illegal move, or taking too long, forfeits the game.
+				if (!board.isValidMove(moveCol)) {
+					if (whoseTurn == 1) p1Forfeits++;
+					else p2Forfeits++;
+					if (log != null) {
+						log.println("game " + gameNum + ": Player #" + whoseTurn + " ("
+								+ runners[whoseTurn].getPlayer().name() + ") "
+								+ (runners[whoseTurn].timedOut() ? "took too much time"
+										: "made an illegal move in col " + moveCol));
+					}
+					winner = 3 - whoseTurn;
+					forfeit = true;
+					break;
+				}
+				board.move(moveCol, whoseTurn);
+				if (record != null) record.move(moveCol);
+				winner = calcWinner(board);
+				whoseTurn = 3 - whoseTurn;
+				prevMoveCol = moveCol;
+			}
+		}
+		finally {
+			// Stop the player threads.
+			runners[1].close();
+			runners[2].close();
+			p1Stats.add(runners[1].getTotalStats());
+			p2Stats.add(runners[2].getTotalStats());
+		}
+
+		gamesPlayed++;
+		if (winner == 1) p1GamesWon++;
+		else if (winner == 2) p2GamesWon++;
+		else draws++;
+		if (statsLog != null) {
+			statsLog.endGame(gameNum, p1Name, p2Name, winner);
+		}
+		if (record != null) {
+			try {
+				record.endGame(winner, forfeit);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		if (log != null) {
+			log.println("game " + gameNum + ": "
+					+ (winner == 0 ? "draw" : (winner == 1 ? p1Name : p2Name)
+							+ " (Player #" + winner + ") wins")
+					+ ", score " + board.score(1) + "-" + board.score(2));
+		}
+		return winner;
+	}
+
+	// Return the id of the winner, 0 for a draw, or -1 if the game
+	// is not over yet.
+	private int calcWinner(Connect4Board board)
+	{
+		if (game.equals("first")) {
+			boolean p1Won = board.score(1) > 0;
+			boolean p2Won = board.score(2) > 0;
+			// Random starting moves can give both players a connect 4.
+			if (p1Won && p2Won) return 0;
+			if (p1Won) return 1;
+			if (p2Won) return 2;
+			return board.isFull() ? 0 : -1;
+		}
+		if (!board.isFull()) return -1;
+		int p1Points = board.score(1);
+		int p2Points = board.score(2);
+		if (p1Points == p2Points) return 0;
+		return (p1Points > p2Points) ? 1 : 2;
+	}
+
+	// Make a board with nmoves random moves, and remember the moves.
+	private Connect4Board newBoard(int nmoves)
+	{
+		Connect4Board b = new Connect4Board(rows, cols);
+		seedMoves = new int[nmoves];
+		seedPlayer = 1;
+		for (int i = 0; i < nmoves; i++) {
+			int col = 0;
+			do {
+				col = rand.nextInt(b.numCols());
+			}
+			while (!b.isValidMove(col));
+			b.move(col, 1 + (i % 2));
+			seedMoves[i] = col;
+		}
+		return b;
+	}
+
+	public int getGamesPlayed()
+	{
+		return gamesPlayed;
+	}
+
+	public int getP1GamesWon()
+	{
+		return p1GamesWon;
+	}
+
+	public int getP2GamesWon()
+	{
+		return p2GamesWon;
+	}
+
+	public int getDraws()
+	{
+		return draws;
+	}
+
+	// Games lost by an illegal move or by taking too much time.
+	public int getP1Forfeits()
+	{
+		return p1Forfeits;
+	}
+
+	public int getP2Forfeits()
+	{
+		return p2Forfeits;
+	}
+
+	// What each player reported about its searches, added up over
+	// every game so far.
+	public SearchStats getP1Stats()
+	{
+		return p1Stats;
+	}
+
+	public SearchStats getP2Stats()
+	{
+		return p2Stats;
+	}
+
+	// The player names, once a game has been played.
+	public String getP1Name()
+	{
+		return p1Name;
+	}
+
+	public String getP2Name()
+	{
+		return p2Name;
+	}
+}
@@ -7,6 +7,13 @@
  * this allows the AI to calculate more future moves than just regular miniMax algorithums 
  * therefore allowing it to calculate better moves for the game overall.
  * 
+ * by default it searches by making and unmaking moves on one board so nothing is allocated while searching.
+ * run with -Dconnect4.search=tree to use the original GameTree search instead, both find the same moves.
+ * the GameTree is kept between moves, and the next move starts from the part of it the game went down.
+ * either way a move starts searching at the depth the last move already searched the position to.
+ * run with -Dconnect4.book=file to play the opening from a book made by OpeningBookGenerator.
+ * run with -Dconnect4.eval=score to value positions by connect 4s only instead of by threats.
+ * 
  * @author (Mickie Newman)
  */
 import java.util.ArrayList;
@@ -17,6 +24,21 @@ public class MickieNewmanPlayer implements Player{
 	private int id;
 	private int enemyid;
 	private int cols;
+	private TranspositionTable tt;// remembers positions already searched, null if turned off
+	private boolean useTree;// true to search with a GameTree instead of making moves on one board
+	private int[][] moveBuffers;// the moves to try at each ply of the search, made once in init
+	private int rootChosenMove;// the best move found at the root by the last search
+	private boolean firstGame;// true when the first connect 4 wins, set by setGame
+	private EndgameSolver solver;// solves the end of "first" games, null if the board is too big for it
+	private int solverEmptyCells;// solve when this many cells or fewer are empty
+	private TimeManager timer;// decides when to stop starting deeper searches
+	private long nodes;// positions searched this move, reported to the arbitrator
+	private long ttProbes, ttHits;// the transposition table counters when this move started
+	private boolean verbose;// true to print the depth reached after every move
+	private OpeningBook book;// moves for the start of the game, null if there is no book
+	private Evaluator evaluator;// values the positions at the bottom of the search
+	private EvalCache evalCache;// values of the GameTree search's leaves, null if turned off
+	private GameTree lastRoot;// the GameTree from our last move, null if there is none
 	/**
 	 * sets name of the player
 	 * 
@@ -27,6 +49,13 @@ public class MickieNewmanPlayer implements Player{
 	}
 	/**
 	 * init: sets the id and enemy id and defines colums and rows.
+	 * it also makes the transposition table, its size in MB comes from the
+	 * connect4.tt.mb system property (default 16, 0 turns it off).
+	 * it also picks the search mode and makes the move buffers for the search, and opens
+	 * the opening book named by the connect4.book system property if there is one.
+	 * the evaluator comes from the connect4.eval system property (default threat).
+	 * the GameTree search also caches its leaf values, the cache size in MB comes from the
+	 * connect4.evalcache.mb system property (default 4, 0 turns it off)
 	 * 
 	 * @param id The id of the player
 	 * @param msecPerMove miliseconds per move
@@ -37,6 +66,31 @@ public class MickieNewmanPlayer implements Player{
 		this.id = id;
 		this.enemyid = 3 - id; //1 or 2 -> if my id is 1 -> opp id 2 vice versa
 		this.cols = cols;
+		int ttMegabytes = Integer.getInteger("connect4.tt.mb", 16);
+		this.tt = ttMegabytes > 0 ? new TranspositionTable(ttMegabytes) : null;
+		this.useTree = "tree".equals(System.getProperty("connect4.search"));
+		this.moveBuffers = new int[rows * cols + 1][cols];
+		this.solver = Connect4Board.fitsBitboard(rows, cols) ? new EndgameSolver(rows, cols) : null;
+		this.solverEmptyCells = Integer.getInteger("connect4.solver.empty", 16);
+		this.timer = new TimeManager(msecPerMove);
+		this.verbose = Boolean.getBoolean("connect4.verbose");
+		this.book = OpeningBook.fromProperty();
+		this.evaluator = Evaluator.fromProperty(rows, cols);
+		// the in place search keeps the evaluator up to date as it moves so it is
+		// quicker to evaluate a leaf again than to look it up
+		if(useTree)
+			this.evalCache = EvalCache.fromProperty(4);
+	}
+	/**
+	 * setGame: remembers if this is a "first" game, the endgame solver only works for those.
+	 * the opening book is dropped if it was made for the other game
+	 * 
+	 * @param game "first" or "most"
+	 */
+	public void setGame(String game) {
+		this.firstGame = "first".equals(game);
+		if(book != null && !book.isFor(game))
+			book = null;
 	}
 	/**
 	 * calcMove method. it tests if it is ok to make a move by checking if the board is full 
@@ -52,34 +106,110 @@ public class MickieNewmanPlayer implements Player{
 	public void calcMove(Connect4Board board, int oppMoveCol, Arbitrator arb) throws TimeUpException{
 		if(board.isFull())
 			throw new Error("Error: the board is full!!!");
+		startMove();// the time for the move starts now, even if the book or the solver picks it
+		
+		// positions in the opening book were searched ahead of time
+		int bookMove = book != null ? book.probe(board, id) : -1;
+		if(bookMove >= 0) {
+			arb.setMove(bookMove);
+			return;
+		}
 		
-		GameTree root = new GameTree(-1, board);
+		if(solveEndgame(board, arb))
+			return;
 		
-		for(int i = 0; i < cols; i++) {
-			if(!board.isColumnFull(i)) {//if collumn is not full consider that move
-				board.move(i, id);
-				root.addChild(i, new Connect4Board(board));
-				board.unmove(i, id);
+		if(tt != null)
+			tt.newSearch();// entries from earlier moves can still be used but may be replaced
+		
+		if(!useTree) {
+			calcMoveInPlace(board, arb);
+			return;
+		}
+		
+		GameTree root = reuseTree(board, oppMoveCol);
+		if(root == null) {
+			root = new GameTree(-1, board);
+			
+			for(int i = 0; i < cols; i++) {
+				if(!board.isColumnFull(i)) {//if collumn is not full consider that move
+					board.move(i, id);
+					root.addChild(i, new Connect4Board(board));
+					board.unmove(i, id);
+				}
 			}
 		}
+		lastRoot = root;
 		
-		//initialize a maximum search depth to be 1
+		//initialize a maximum search depth, 1 unless the last move already searched this position
 		
-		int searchDepth = 1;
+		int firstDepth = startDepth(board, arb);
+		int searchDepth = firstDepth;
 		// initalize alpha and beta to be negative infinity and positive infinity
 		double Alpha = Double.NEGATIVE_INFINITY;
 		double Beta = Double.POSITIVE_INFINITY;
 		// while there is time remaining to calculate your move(you can check this with  the arb.isTimeUp() method) and your current search depth is <= the number of moves remaining (you can check this with board.numEmptyCells() method): 
-		while(!arb.isTimeUp() && searchDepth <= board.numEmptyCells()) {
+		try {
+			while(!arb.isTimeUp() && searchDepth <= board.numEmptyCells() && timer.startIteration()) {
 			
-		// do a AlphaBeta search to the depth of your maximum search variable 
+			// do a AlphaBeta search to the depth of your maximum search variable 
 			
-			alphabeta(root, searchDepth, Alpha, Beta, true, arb);// investigate if the boolean is supposed to alwayse be true
-		// set your move as the best move found so far
-			arb.setMove(root.chosenMove);
-		// increment your maximum search depth
-			searchDepth++;
-			}
+				alphabeta(root, searchDepth, Alpha, Beta, true, arb);// investigate if the boolean is supposed to alwayse be true
+			// set your move as the best move found so far
+				arb.setMove(root.chosenMove);
+				timer.iterationDone();
+			// increment your maximum search depth
+				searchDepth++;
+				}
+		}
+		finally {
+			endMove(searchDepth > firstDepth ? searchDepth - 1 : 0, arb);
+		}
+	}
+	/**
+	 * reuseTree: finds the part of the tree from our last move that the game went down, our move
+	 * and then the opponents move, so that the nodes and children already made are used again.
+	 * 
+	 * @param board a Connect4 object the board configuration of the connect4 board
+	 * @param oppMoveCol an int the collumn of your opponents most recent move
+	 * @return the node for the board made into a root, or null if there is no such node
+	 * (the first move of a game, or the book or the endgame solver made our last move)
+	 */
+	private GameTree reuseTree(Connect4Board board, int oppMoveCol) {
+		GameTree old = lastRoot;
+		lastRoot = null;
+		if(old == null || oppMoveCol < 0)
+			return null;
+		int ours = old.indexOf(old.chosenMove);
+		if(ours < 0)
+			return null;
+		GameTree ourNode = old.children.get(ours);
+		int theirs = ourNode.indexOf(oppMoveCol);
+		if(theirs < 0)
+			return null;
+		GameTree root = ourNode.children.get(theirs);
+		if(!root.board.equals(board))// we did not play the move the tree picked
+			return null;
+		root.move = -1;
+		return root;
+	}
+	/**
+	 * startDepth: the depth to start iterative deepening at. the position was two moves down the
+	 * search for our last move, so if the transposition table still has it there is no point
+	 * searching it again less deeply than it was searched then. its best move is set in case
+	 * time runs out before the first search finishes
+	 * 
+	 * @param board a Connect4 object the board configuration of the connect4 board
+	 * @param arb an arbitrator object
+	 * @return the depth to search first, at least 1
+	 */
+	private int startDepth(Connect4Board board, Arbitrator arb) throws TimeUpException{
+		if(tt == null)
+			return 1;
+		long ttEntry = tt.probe(board.key());
+		if(ttEntry == TranspositionTable.MISS || !board.isValidMove(TranspositionTable.move(ttEntry)))
+			return 1;
+		arb.setMove(TranspositionTable.move(ttEntry));
+		return Math.max(1, Math.min(TranspositionTable.depth(ttEntry), board.numEmptyCells()));
 	}
 	/**
 	 * alphabeta : this looks at all the possible future moves by looking at future moves of both
@@ -98,12 +228,40 @@ public class MickieNewmanPlayer implements Player{
 	 * @return value an int that is the value of the best possible move.
 	 */
 	private int alphabeta(GameTree node, int depth, double alpha, double beta, boolean maxminimizingPlayer, Arbitrator arb) {
+		nodes++;
 		
 		if(depth == 0 || node.isTerminal() || arb.isTimeUp()) {
-			node.value = evaluateNode(node);
+			node.value = evaluateNode(node, maxminimizingPlayer);
 			return node.value;
 		}
 		
+		// look the position up in the transposition table. the root is never looked up
+		// because we always need it to search its children and pick a move
+		long ttEntry = TranspositionTable.MISS;
+		if(tt != null && node.move != -1) {
+			ttEntry = tt.probe(node.board.key());
+			if(ttEntry != TranspositionTable.MISS && TranspositionTable.depth(ttEntry) >= depth) {
+				int ttValue = TranspositionTable.value(ttEntry);
+				int bound = TranspositionTable.bound(ttEntry);
+				if(bound == TranspositionTable.EXACT) {// already searched at least this deep
+					node.value = ttValue;
+					node.chosenMove = TranspositionTable.move(ttEntry);
+					return ttValue;
+				}
+				if(bound == TranspositionTable.LOWER && ttValue > alpha)
+					alpha = ttValue;
+				else if(bound == TranspositionTable.UPPER && ttValue < beta)
+					beta = ttValue;
+				if(alpha >= beta) {// the stored bound is enough to cut off this node
+					node.value = ttValue;
+					return ttValue;
+				}
+			}
+		}
+		// remember the window we actually searched with so we know what kind of bound we found
+		double searchAlpha = alpha;
+		double searchBeta = beta;
+		
 		if(node.isLeaf()){
 			
 			int moveId = maxminimizingPlayer ? id : enemyid;// will change if minimaximizing player is true or false depending on the player id and sets that to move id
@@ -117,11 +275,16 @@ public class MickieNewmanPlayer implements Player{
 					}
 				}
 			}
+		// try the best move from the transposition table first since it is the most likely to cause a cut off
+		int first = -1;
+		if(ttEntry != TranspositionTable.MISS)
+			first = node.indexOf(TranspositionTable.move(ttEntry));
 		// if its the players turn 
 		if(maxminimizingPlayer) {
 			int value = Integer.MIN_VALUE;
 			//runs through all nodes in children
-			for(GameTree child: node.children) {
+			for(int k = 0; k < node.children.size(); k++) {
+				GameTree child = node.children.get(searchOrder(k, first));
 				int newVal = alphabeta(child, depth - 1, alpha, beta, false, arb);//finds value of child
 				if(newVal > value) {// compares the values of all the children 
 					value = newVal;
@@ -142,13 +305,15 @@ public class MickieNewmanPlayer implements Player{
 					break;
 				}
 			}
+			storeResult(node.board.key(), node.move == -1, depth, value, node.chosenMove, searchAlpha, searchBeta, arb);
 			return value;
 		}
 		//if its the opponents's turn
 		else {
 
 			int value = Integer.MAX_VALUE;
-			for(GameTree child: node.children) {
+			for(int k = 0; k < node.children.size(); k++) {
+				GameTree child = node.children.get(searchOrder(k, first));
 				int newVal = alphabeta(child, depth - 1, alpha, beta, true, arb);// finds values of all the children
 				if(newVal < value) {// compares the values of all the children 
 					value = newVal;
@@ -168,31 +333,273 @@ public class MickieNewmanPlayer implements Player{
 					break;
 				}
 			}
+			storeResult(node.board.key(), node.move == -1, depth, value, node.chosenMove, searchAlpha, searchBeta, arb);
 			return value;
 		}
 		
 		
 		}
+	/**
+	 * startMove: starts the time manager and the counters for a new move
+	 */
+	private void startMove() {
+		timer.startMove();
+		nodes = 0;
+		if(tt != null) {
+			ttProbes = tt.getProbes();
+			ttHits = tt.getHits();
+		}
+	}
+	/**
+	 * endMove: tells the time manager how deep this move got, reports the search to the
+	 * arbitrator and prints it in verbose mode
+	 * 
+	 * @param depth the deepest search that finished
+	 * @param arb an arbitrator object
+	 */
+	private void endMove(int depth, Arbitrator arb) {
+		timer.endMove(depth);
+		arb.getStats().setDepth(depth);
+		arb.getStats().addNodes(nodes);
+		if(tt != null)
+			arb.getStats().addTTProbes(tt.getProbes() - ttProbes, tt.getHits() - ttHits);
+		if(verbose) {
+			System.err.printf("%s: depth %d, average depth %.2f, %.0f%% of the time in unfinished searches%n",
+					name(), depth, timer.getAverageDepth(), 100 * timer.getAbandonedFraction());
+			if(evalCache != null)
+				System.err.printf("%s: eval cache %d hits, %d misses%n",
+						name(), evalCache.getHits(), evalCache.getMisses());
+		}
+	}
+	/**
+	 * solveEndgame: near the end of a "first" game the endgame solver finds the result of
+	 * perfect play much faster than iterative deepening. the number of empty cells to start
+	 * solving at comes from the connect4.solver.empty system property (default 16).
+	 * a center move is set first in case time runs out while solving
+	 * 
+	 * @param board a Connect4 object the board configuration of the connect4 board
+	 * @param arb an arbitrator object
+	 * @return true if the solver found a win or a draw and set its move, false if the normal search should pick the move
+	 */
+	private boolean solveEndgame(Connect4Board board, Arbitrator arb) throws TimeUpException{
+		if(!firstGame || solver == null || board.numEmptyCells() > solverEmptyCells || board.hasWinner())
+			return false;
+		for(int i = 0; i < cols; i++) {
+			int offset = (i + 1) / 2;
+			int col = (cols - 1) / 2 + ((i % 2) == 1 ? offset : -offset);
+			if(board.isValidMove(col)) {
+				arb.setMove(col);
+				break;
+			}
+		}
+		// every move loses against perfect play, so let the normal search pick one
+		if(solver.solve(board, id, arb) == EndgameSolver.LOSS)
+			return false;
+		arb.setMove(solver.getBestMove());
+		return true;
+	}
+	/**
+	 * calcMoveInPlace: does the same iterative deepening as calcMove but the search makes and
+	 * unmakes moves on the board we were given instead of building a GameTree.
+	 * the board is back the way it was after each search.
+	 * 
+	 * @param board a Connect4 object the board configuration of the connect4 board
+	 * @param arb an arbitrator object
+	 */
+	private void calcMoveInPlace(Connect4Board board, Arbitrator arb) throws TimeUpException{
+		int firstDepth = startDepth(board, arb);
+		int searchDepth = firstDepth;
+		double Alpha = Double.NEGATIVE_INFINITY;
+		double Beta = Double.POSITIVE_INFINITY;
+		try {
+			while(!arb.isTimeUp() && searchDepth <= board.numEmptyCells() && timer.startIteration()) {
+				evaluator.reset(board);
+				alphabeta(board, searchDepth, 0, Alpha, Beta, true, arb);
+				arb.setMove(rootChosenMove);
+				timer.iterationDone();
+				searchDepth++;
+			}
+		}
+		finally {
+			endMove(searchDepth > firstDepth ? searchDepth - 1 : 0, arb);
+		}
+	}
+	/**
+	 * alphabeta: the make/unmake version of alphabeta. it looks at the same moves in the same order
+	 * and uses the transposition table the same way as the GameTree version so it returns the same
+	 * values and picks the same moves. the moves for each ply go in moveBuffers so nothing is allocated
+	 * 
+	 * @param board a Connect4Board object the board to search, it is changed and then changed back
+	 * @param depth an int the search depth
+	 * @param ply an int how many moves we are from the root
+	 * @param alpha a double the best value we can already get
+	 * @param beta a double the best value the enemy can already hold us to
+	 * @param maxminimizingPlayer a boolean to determine if we need to max or min the value based on which player is going 
+	 * @param arb an Arbitrator object
+	 * @return value an int that is the value of the best possible move.
+	 */
+	private int alphabeta(Connect4Board board, int depth, int ply, double alpha, double beta, boolean maxminimizingPlayer, Arbitrator arb) {
+		nodes++;
+		
+		if(depth == 0 || board.isFull() || arb.isTimeUp())
+			return evaluateBoard(board, maxminimizingPlayer);
+		
+		long key = board.key();
+		long ttEntry = TranspositionTable.MISS;
+		if(tt != null && ply > 0) {
+			ttEntry = tt.probe(key);
+			if(ttEntry != TranspositionTable.MISS && TranspositionTable.depth(ttEntry) >= depth) {
+				int ttValue = TranspositionTable.value(ttEntry);
+				int bound = TranspositionTable.bound(ttEntry);
+				if(bound == TranspositionTable.EXACT)
+					return ttValue;
+				if(bound == TranspositionTable.LOWER && ttValue > alpha)
+					alpha = ttValue;
+				else if(bound == TranspositionTable.UPPER && ttValue < beta)
+					beta = ttValue;
+				if(alpha >= beta)
+					return ttValue;
+			}
+		}
+		double searchAlpha = alpha;
+		double searchBeta = beta;
+		
+		int moveId = maxminimizingPlayer ? id : enemyid;
+		int[] moves = moveBuffers[ply];
+		int numMoves = 0;
+		for(int i = 0; i < cols; i++) {
+			if(!board.isColumnFull(i))
+				moves[numMoves++] = i;
+		}
+		if(ttEntry != TranspositionTable.MISS)
+			moveToFront(moves, numMoves, TranspositionTable.move(ttEntry));
+		
+		int value = maxminimizingPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		int chosenMove = -1;
+		for(int k = 0; k < numMoves; k++) {
+			int move = moves[k];
+			int row = board.move(move, moveId);
+			evaluator.move(row, move, moveId);// keep the evaluator up to date with the board
+			int newVal = alphabeta(board, depth - 1, ply + 1, alpha, beta, !maxminimizingPlayer, arb);
+			evaluator.unmove(row, move, moveId);
+			board.unmove(move, moveId);
+			if(maxminimizingPlayer ? newVal > value : newVal < value) {
+				value = newVal;
+				chosenMove = move;
+				if(maxminimizingPlayer && value > alpha)
+					alpha = value;
+				if(!maxminimizingPlayer && value < beta)
+					beta = value;
+			}
+			else if(newVal == value) {// same tie break as the tree, closest to the center wins
+				if(Math.abs(cols/2 - move) < Math.abs(cols/2 - chosenMove))
+					chosenMove = move;
+			}
+			if(alpha >= beta)
+				break;
+		}
+		storeResult(key, ply == 0, depth, value, chosenMove, searchAlpha, searchBeta, arb);
+		if(ply == 0)
+			rootChosenMove = chosenMove;
+		return value;
+	}
+	/**
+	 * searchOrder: which child to search kth when the child at index first goes first
+	 * and the rest stay in column order
+	 * 
+	 * @param k an int how many children have been searched already
+	 * @param first an int the index of the child to search first, -1 to keep column order
+	 * @return the index of the child to search
+	 */
+	private static int searchOrder(int k, int first) {
+		if(first < 0)
+			return k;
+		if(k == 0)
+			return first;
+		return k <= first ? k - 1 : k;
+	}
+	/**
+	 * moveToFront: moves a move to the front of a list of moves and keeps the rest in order,
+	 * the same order searchOrder gives the GameTree children
+	 * 
+	 * @param moves an int array the moves
+	 * @param numMoves an int how many moves are in the array
+	 * @param move an int the move to put first, nothing happens if it isnt in the array
+	 */
+	private static void moveToFront(int[] moves, int numMoves, int move) {
+		for(int i = 0; i < numMoves; i++) {
+			if(moves[i] == move) {
+				System.arraycopy(moves, 0, moves, 1, i);
+				moves[0] = move;
+				return;
+			}
+		}
+	}
+	/**
+	 * storeResult: saves the value of a node we just searched in the transposition table.
+	 * if the value is outside the window we searched with it is only a bound on the real value.
+	 * nothing is saved if time ran out because the value could come from a search we didnt finish
+	 * 
+	 * @param key a long the key of the board we searched
+	 * @param isRoot a boolean true for the root, which is never saved
+	 * @param depth an int the search depth of the node
+	 * @param value an int the value we found
+	 * @param chosenMove an int the best move we found
+	 * @param alpha a double the alpha we searched the children with
+	 * @param beta a double the beta we searched the children with
+	 * @param arb an Arbitrator object
+	 */
+	private void storeResult(long key, boolean isRoot, int depth, int value, int chosenMove, double alpha, double beta, Arbitrator arb) {
+		if(tt == null || isRoot || arb.isTimeUp())
+			return;
+		int bound = TranspositionTable.EXACT;
+		if(value <= alpha)
+			bound = TranspositionTable.UPPER;
+		else if(value >= beta)
+			bound = TranspositionTable.LOWER;
+		tt.store(key, depth, bound, value, chosenMove);
+	}
 	/**
 	 * evaluateNode: this determines how well the player is doing against the opponent 
-	 * by getting the score if you played that particular move and your enemys score if you
-	 * played that move. it then compares the scores by subtracting your score from the enemys score
-	 * and returns the difference.
+	 * in the node's board. the tree nodes each have their own board so the evaluator
+	 * starts over for every one, unless the value is already in the cache from an earlier search
 	 *   
 	 * 
 	 * @param node a gametree object the last move the player did
+	 * @param myTurn a boolean true if it is our move in the node
 	 */
-	private int evaluateNode(GameTree node) {
-		int myScore = calcScore(node.board, id);
-		int oppScore = calcScore(node.board,enemyid);
-		return myScore - oppScore;
-		
+	private int evaluateNode(GameTree node, boolean myTurn) {
+		int toMove = myTurn ? id : enemyid;
+		long key = node.board.key();
+		int value = evalCache != null ? evalCache.probe(key, toMove) : EvalCache.MISS;
+		if(value == EvalCache.MISS) {
+			evaluator.reset(node.board);
+			value = evaluator.evaluate(node.board, toMove);
+			if(evalCache != null)
+				evalCache.store(key, toMove, value);
+		}
+		return myTurn ? value : -value;
+	}
+	/**
+	 * evaluateBoard: how good the board is for us according to the evaluator. with
+	 * -Dconnect4.eval=score this is our score minus the enemys score.
+	 * the evaluator must already be following the board
+	 * 
+	 * @param board a Connect4Board object the board to evaluate
+	 * @param myTurn a boolean true if it is our move on the board
+	 * @return an int the value of the board for us
+	 */
+	private int evaluateBoard(Connect4Board board, boolean myTurn) {
+		if(myTurn)
+			return evaluator.evaluate(board, id);
+		return -evaluator.evaluate(board, enemyid);
 	}
 
 	/**
 	 * calcScore: this figures out if you scored a point by finding how many times 
 	 * there are 4 player moves that are right next to each other in a line, either horizontally
-	 * virtecally or diagonally. it then adds up all the occurances and returns the total score
+	 * virtecally or diagonally. the board keeps a running count of these as moves are made
+	 * and unmade so this does not need to scan the board
 	 *   
 	 * 
 	 * @param board a Connect4Board object that shows the configuration of the board
@@ -200,56 +607,7 @@ public class MickieNewmanPlayer implements Player{
 	 * @return score an int that is the total number of times the player has 4 tiles in a row
 	 */
 	public int calcScore(Connect4Board board, int id) {
-		
-		final int rows = board.numRows();
-		final int cols = board.numCols();
-		int score = 0;		
-		
-
-		//horizontal
-		for(int r = 0; r < rows; r++) {
-			for(int c = 0; c <= cols - 4; c++) {
-				if(board.get(r, c + 0) != id) continue;
-				if(board.get(r, c + 1) != id) continue;
-				if(board.get(r, c + 2) != id) continue;
-				if(board.get(r, c + 3) != id) continue;
-				score++;
-		
-			}
-		}
-		//vertical 
-		for(int c = 0; c < cols; c++) {
-			for(int r = 0; r <= rows - 4; r++) {
-				if(board.get(r + 0, c) != id)continue;
-				if(board.get(r + 1, c) != id)continue;
-				if(board.get(r + 2, c) != id)continue;
-				if(board.get(r + 3, c) != id)continue;
-				score++;
-				
-				
-			}
-		}
-		//diagonal 
-		for(int c = 0; c <= cols - 4; c++) {
-			for(int r = 0; r <= rows - 4; r++) {
-				if(board.get(r + 0, c + 0) != id)continue;
-				if(board.get(r + 1, c + 1) != id)continue;
-				if(board.get(r + 2, c + 2) != id)continue;
-				if(board.get(r + 3, c + 3) != id)continue;
-				score++;
-				
-			}
-		}
-		for(int c = 0; c <= cols - 4; c++) {
-			for(int r = rows - 1; r >= 4 - 1; r--) {
-				if(board.get(r - 0, c + 0) != id)continue;
-				if(board.get(r - 1, c + 1) != id)continue;
-				if(board.get(r - 2, c + 2) != id)continue;
-				if(board.get(r - 3, c + 3) != id)continue;
-				score++;
-			}
-		}
-		return score;
+		return board.score(id);
 	}
 	
 	// creates an object called GameTree it is a binary search tree of possible moves
@@ -292,6 +650,19 @@ public class MickieNewmanPlayer implements Player{
 		public boolean isLeaf() {
 			return children.size() == 0;
 		}
+		/**
+		 * finds the child for a move
+		 * 
+		 * @param move : the column of the child to find
+		 * @return the index of the child in children, -1 if there is no such child
+		 */
+		public int indexOf(int move) {
+			for(int i = 0; i < children.size(); i++) {
+				if(children.get(i).move == move)
+					return i;
+			}
+			return -1;
+		}
 		/**
 		 * whether or not the board is full 
 		 * 
@@ -4,6 +4,9 @@
  * this uses a binary search tree to look into possible moves and choose the best move for the player
  * it also tries to minimize the gains of the other player while at the same time maximizing its own score.
  * 
+ * by default it searches by making and unmaking moves on one board so nothing is allocated while searching.
+ * run with -Dconnect4.search=tree to use the original GameTree search instead, both find the same moves.
+ * 
  * @author Mickie Newman
  */
 
@@ -15,6 +18,15 @@ public class MinimaxPlayer implements Player {
 	private int id;
 	private int enemyid;
 	private int cols;
+	private boolean useTree;// true to search with a GameTree instead of making moves on one board
+	private int[][] moveBuffers;// the moves to try at each ply of the search, made once in init
+	private int rootChosenMove;// the best move found at the root by the last search
+	private boolean firstGame;// true when the first connect 4 wins, set by setGame
+	private EndgameSolver solver;// solves the end of "first" games, null if the board is too big for it
+	private int solverEmptyCells;// solve when this many cells or fewer are empty
+	private TimeManager timer;// decides when to stop starting deeper searches
+	private long nodes;// positions searched this move, reported to the arbitrator
+	private boolean verbose;// true to print the depth reached after every move
 	/**
 	 * sets name of the player
 	 * 
@@ -25,6 +37,7 @@ public class MinimaxPlayer implements Player {
 	}
 	/**
 	 * init: sets the id and enemy id and defines columns and rows.
+	 * it also picks the search mode and makes the move buffers for the search
 	 * 
 	 * @param id The id of the player
 	 * @param msecPerMove miliseconds per move
@@ -35,6 +48,20 @@ public class MinimaxPlayer implements Player {
 		this.id = id;
 		this.enemyid = 3 - id; //1 or 2 -> if my id is 1 -> opp id 2 vice versa
 		this.cols = cols;
+		this.useTree = "tree".equals(System.getProperty("connect4.search"));
+		this.moveBuffers = new int[rows * cols + 1][cols];
+		this.solver = Connect4Board.fitsBitboard(rows, cols) ? new EndgameSolver(rows, cols) : null;
+		this.solverEmptyCells = Integer.getInteger("connect4.solver.empty", 16);
+		this.timer = new TimeManager(msecPerMove);
+		this.verbose = Boolean.getBoolean("connect4.verbose");
+	}
+	/**
+	 * setGame: remembers if this is a "first" game, the endgame solver only works for those
+	 * 
+	 * @param game "first" or "most"
+	 */
+	public void setGame(String game) {
+		this.firstGame = "first".equals(game);
 	}
 	/**
 	 * calcMove method. it tests if it is ok to make a move by checking if the board is full 
@@ -50,6 +77,15 @@ public class MinimaxPlayer implements Player {
 	public void calcMove(Connect4Board board, int oppMoveCol, Arbitrator arb) throws TimeUpException{
 		if(board.isFull())
 			throw new Error("Error: the board is full!!!");
+		startMove();// the time for the move starts now, even if the solver picks it
+		
+		if(solveEndgame(board, arb))
+			return;
+		
+		if(!useTree) {
+			calcMoveInPlace(board, arb);
+			return;
+		}
 		
 		GameTree root = new GameTree(-1, board);
 		
@@ -64,15 +100,138 @@ public class MinimaxPlayer implements Player {
 		//initialize a maximum search depth to be 1
 		int searchDepth = 1;
 		// while there is time remaining to calculate your move(you can check this with  the arb.isTimeUp() method) and your current search depth is <= the number of moves remaining (you can check this with board.numEmptyCells() method): 
-		while(!arb.isTimeUp() && searchDepth <= board.numEmptyCells()) {
+		try {
+			while(!arb.isTimeUp() && searchDepth <= board.numEmptyCells() && timer.startIteration()) {
 			
-		// do a minimax search to the depth of your maximum search variable 
-			minimax(root, searchDepth, true, arb);// investigate if the boolean is supposed to alwayse be true
-		// set your move as the best move found so far
-			arb.setMove(root.chosenMove);
-		// increment your maximum search depth
-			searchDepth++;
+			// do a minimax search to the depth of your maximum search variable 
+				minimax(root, searchDepth, true, arb);// investigate if the boolean is supposed to alwayse be true
+			// set your move as the best move found so far
+				arb.setMove(root.chosenMove);
+				timer.iterationDone();
+			// increment your maximum search depth
+				searchDepth++;
+				}
+		}
+		finally {
+			endMove(searchDepth - 1, arb);
+		}
+	}
+	/**
+	 * startMove: starts the time manager and the counters for a new move
+	 */
+	private void startMove() {
+		timer.startMove();
+		nodes = 0;
+	}
+	/**
+	 * endMove: tells the time manager how deep this move got, reports the search to the
+	 * arbitrator and prints it in verbose mode
+	 * 
+	 * @param depth the deepest search that finished
+	 * @param arb an arbitrator object
+	 */
+	private void endMove(int depth, Arbitrator arb) {
+		timer.endMove(depth);
+		arb.getStats().setDepth(depth);
+		arb.getStats().addNodes(nodes);
+		if(verbose)
+			System.err.printf("%s: depth %d, average depth %.2f, %.0f%% of the time in unfinished searches%n",
+					name(), depth, timer.getAverageDepth(), 100 * timer.getAbandonedFraction());
+	}
+	/**
+	 * solveEndgame: near the end of a "first" game the endgame solver finds the result of
+	 * perfect play much faster than iterative deepening. the number of empty cells to start
+	 * solving at comes from the connect4.solver.empty system property (default 16).
+	 * a center move is set first in case time runs out while solving
+	 * 
+	 * @param board a Connect4 object the board configuration of the connect4 board
+	 * @param arb an arbitrator object
+	 * @return true if the solver found a win or a draw and set its move, false if the normal search should pick the move
+	 */
+	private boolean solveEndgame(Connect4Board board, Arbitrator arb) throws TimeUpException{
+		if(!firstGame || solver == null || board.numEmptyCells() > solverEmptyCells || board.hasWinner())
+			return false;
+		for(int i = 0; i < cols; i++) {
+			int offset = (i + 1) / 2;
+			int col = (cols - 1) / 2 + ((i % 2) == 1 ? offset : -offset);
+			if(board.isValidMove(col)) {
+				arb.setMove(col);
+				break;
 			}
+		}
+		// every move loses against perfect play, so let the normal search pick one
+		if(solver.solve(board, id, arb) == EndgameSolver.LOSS)
+			return false;
+		arb.setMove(solver.getBestMove());
+		return true;
+	}
+	/**
+	 * calcMoveInPlace: does the same iterative deepening as calcMove but the search makes and
+	 * unmakes moves on the board we were given instead of building a GameTree.
+	 * the board is back the way it was after each search.
+	 * 
+	 * @param board a Connect4 object the board configuration of the connect4 board
+	 * @param arb an arbitrator object
+	 */
+	private void calcMoveInPlace(Connect4Board board, Arbitrator arb) throws TimeUpException{
+		int searchDepth = 1;
+		try {
+			while(!arb.isTimeUp() && searchDepth <= board.numEmptyCells() && timer.startIteration()) {
+				minimax(board, searchDepth, 0, true, arb);
+				arb.setMove(rootChosenMove);
+				timer.iterationDone();
+				searchDepth++;
+			}
+		}
+		finally {
+			endMove(searchDepth - 1, arb);
+		}
+	}
+	/**
+	 * minimax: the make/unmake version of minimax. it looks at the same moves in the same order
+	 * as the GameTree version so it returns the same values and picks the same moves.
+	 * the moves for each ply go in moveBuffers so nothing is allocated
+	 * 
+	 * @param board a Connect4Board object the board to search, it is changed and then changed back
+	 * @param depth an int the search depth
+	 * @param ply an int how many moves we are from the root
+	 * @param maxminimizingPlayer a boolean to determine if we need to max or min the value based on which player is going 
+	 * @param arb an Arbitrator object
+	 * @return value an int that is the value of the best possible move.
+	 */
+	private int minimax(Connect4Board board, int depth, int ply, boolean maxminimizingPlayer, Arbitrator arb) {
+		nodes++;
+		
+		if(depth == 0 || board.isFull() || arb.isTimeUp())
+			return evaluateBoard(board);
+		
+		int moveId = maxminimizingPlayer ? id : enemyid;
+		int[] moves = moveBuffers[ply];
+		int numMoves = 0;
+		for(int i = 0; i < cols; i++) {
+			if(!board.isColumnFull(i))
+				moves[numMoves++] = i;
+		}
+		
+		int value = maxminimizingPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		int chosenMove = -1;
+		for(int k = 0; k < numMoves; k++) {
+			int move = moves[k];
+			board.move(move, moveId);
+			int newVal = minimax(board, depth - 1, ply + 1, !maxminimizingPlayer, arb);
+			board.unmove(move, moveId);
+			if(maxminimizingPlayer ? newVal > value : newVal < value) {
+				value = newVal;
+				chosenMove = move;
+			}
+			else if(newVal == value) {// same tie break as the tree, closest to the center wins
+				if(Math.abs(cols/2 - move) < Math.abs(cols/2 - chosenMove))
+					chosenMove = move;
+			}
+		}
+		if(ply == 0)
+			rootChosenMove = chosenMove;
+		return value;
 	}
 	/**
 	 * minimax: this looks at all the possible future moves by looking at future moves of both
@@ -87,6 +246,7 @@ public class MinimaxPlayer implements Player {
 	 * @return value an int that is the value of the best possible move.
 	 */
 	private int minimax(GameTree node, int depth, boolean maxminimizingPlayer, Arbitrator arb) {
+		nodes++;
 		
 		if(depth == 0 || node.isTerminal() || arb.isTimeUp()) {
 			node.value = evaluateNode(node);
@@ -164,16 +324,25 @@ public class MinimaxPlayer implements Player {
 	 * @param node a gametree object the last move the player did
 	 */
 	private int evaluateNode(GameTree node) {
-		int myScore = calcScore(node.board, id);
-		int oppScore = calcScore(node.board,enemyid);
+		return evaluateBoard(node.board);
+	}
+	/**
+	 * evaluateBoard: the score of the board for us minus the score for the enemy.
+	 * 
+	 * @param board a Connect4Board object the board to evaluate
+	 * @return an int our score minus the enemys score
+	 */
+	private int evaluateBoard(Connect4Board board) {
+		int myScore = calcScore(board, id);
+		int oppScore = calcScore(board, enemyid);
 		return myScore - oppScore;
-		
 	}
 
 	/**
 	 * calcScore: this figures out if you scored a point by finding how many times 
 	 * there are 4 player moves that are right next to each other in a line, either horizontally
-	 * virtecally or diagonally. it then adds up all the occurances and returns the total score
+	 * virtecally or diagonally. the board keeps a running count of these as moves are made
+	 * and unmade so this does not need to scan the board
 	 *   
 	 * 
 	 * @param board a Connect4Board object that shows the configuration of the board
@@ -181,55 +350,7 @@ public class MinimaxPlayer implements Player {
 	 * @return score an int that is the total number of times the player has 4 tiles in a row
 	 */
 	public int calcScore(Connect4Board board, int id) {
-		
-		final int rows = board.numRows();
-		final int cols = board.numCols();
-		int score = 0;		
-		
-		//horizontal
-		for(int r = 0; r < rows; r++) {
-			for(int c = 0; c <= cols - 4; c++) {
-				if(board.get(r, c + 0) != id) continue;
-				if(board.get(r, c + 1) != id) continue;
-				if(board.get(r, c + 2) != id) continue;
-				if(board.get(r, c + 3) != id) continue;
-				score++;
-		
-			}
-		}
-		//vertical 
-		for(int c = 0; c < cols; c++) {
-			for(int r = 0; r <= rows - 4; r++) {
-				if(board.get(r + 0, c) != id)continue;
-				if(board.get(r + 1, c) != id)continue;
-				if(board.get(r + 2, c) != id)continue;
-				if(board.get(r + 3, c) != id)continue;
-				score++;
-				
-				
-			}
-		}
-		//diagonal 
-		for(int c = 0; c <= cols - 4; c++) {
-			for(int r = 0; r <= rows - 4; r++) {
-				if(board.get(r + 0, c + 0) != id)continue;
-				if(board.get(r + 1, c + 1) != id)continue;
-				if(board.get(r + 2, c + 2) != id)continue;
-				if(board.get(r + 3, c + 3) != id)continue;
-				score++;
-				
-			}
-		}
-		for(int c = 0; c <= cols - 4; c++) {
-			for(int r = rows - 1; r >= 4 - 1; r--) {
-				if(board.get(r - 0, c + 0) != id)continue;
-				if(board.get(r - 1, c + 1) != id)continue;
-				if(board.get(r - 2, c + 2) != id)continue;
-				if(board.get(r - 3, c + 3) != id)continue;
-				score++;
-			}
-		}
-		return score;
+		return board.score(id);
 	}
 // creates an object called GameTree it is a binary search tree of possible moves
 	private class GameTree{
@@ -0,0 +1,163 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read-only opening book: the best move for positions near the start
+ * of the game, worked out ahead of time by OpeningBookGenerator.
+ *
+ * The book file is mapped into memory rather than read, so opening it
+ * takes the same time however many positions it holds, and a lookup is
+ * a binary search over the mapped records that copies nothing onto the
+ * heap.  The file is a header followed by fixed-size records sorted by
+ * key:
+ *
+ *     header:  int MAGIC, int rows, int cols, byte game, int count
+ *     record:  long key, short value, byte move, byte depth
+ *
+ * all big-endian.  Positions are stored from the point of view of the
+ * player to move (as if that player were player 1) and under their
+ * canonical key, so one record covers a position and its mirror image
+ * whichever player started the game.  The stored move is for the board
+ * whose key is the canonical one.
+ *
+ * An OpeningBook can be probed by several threads at once.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class OpeningBook
+{
+    // "C4BK"
+    public static final int MAGIC = 0x4334424B;
+
+    public static final int HEADER_BYTES = 17;
+    public static final int RECORD_BYTES = 12;
+
+    private final ByteBuffer records;
+    private final int rows, cols;
+    private final String game;
+    private final int count;
+
+    // Books opened by fromProperty(), by file name; null if unreadable.
+    private static final Map<String,OpeningBook> opened = new HashMap<String,OpeningBook>();
+
+    /**
+     * Map a book file into memory.
+     * @param path The book file
+     * @throws IOException If the file cannot be read or is not a book
+     */
+    public OpeningBook (Path path) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(path,StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + ": book is too large");
+            }
+            buf = ch.map(FileChannel.MapMode.READ_ONLY,0,ch.size());
+        }
+        if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC) {
+            throw new IOException(path + ": not an opening book");
+        }
+        this.rows = buf.getInt(4);
+        this.cols = buf.getInt(8);
+        this.game = buf.get(12) == 'f' ? "first" : "most";
+        this.count = buf.getInt(13);
+        if ((long) count * RECORD_BYTES != buf.capacity() - HEADER_BYTES) {
+            throw new IOException(path + ": book is truncated");
+        }
+        this.records = buf.position(HEADER_BYTES).slice();
+    }
+
+    /**
+     * Get the number of positions in the book.
+     * @return The number of records
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Check if the book was made for a game.
+     * @param game "first" or "most"
+     * @return True if the book's moves are for that game
+     */
+    public boolean isFor (String game) {
+        return this.game.equals(game);
+    }
+
+    /**
+     * Get the book named by the connect4.book system property.  Each
+     * file is only mapped once, however many players use it.
+     * @return The book, or null if the property is not set or the file
+     *         cannot be read
+     */
+    public static OpeningBook fromProperty() {
+        String path = System.getProperty("connect4.book");
+        if (path == null) {
+            return null;
+        }
+        synchronized (opened) {
+            if (!opened.containsKey(path)) {
+                OpeningBook book = null;
+                try {
+                    book = new OpeningBook(Path.of(path));
+                } catch (IOException e) {
+                    System.err.println("opening book not used: " + e);
+                }
+                opened.put(path,book);
+            }
+            return opened.get(path);
+        }
+    }
+
+    /**
+     * Look up the book move for a position.
+     * @param board The position; it is not changed
+     * @param id The player to move
+     * @return The column to play, or -1 if the position is not in the book
+     */
+    public int probe (Connect4Board board, int id) {
+        if (board.numRows() != rows || board.numCols() != cols) {
+            return -1;
+        }
+        long key = board.canonicalKey(id == 2);
+        int i = find(key);
+        if (i < 0) {
+            return -1;
+        }
+        int move = records.get(i*RECORD_BYTES + 10);
+        if (board.key(id == 2) != key) {
+            move = cols-1-move;     // The record is for the mirror image.
+        }
+        return board.isValidMove(move) ? move : -1;
+    }
+
+    /**
+     * Get the key a position is stored under: the canonical key of the
+     * board as player 1 would see it if player id is to move.
+     * @param board The position
+     * @param id The player to move
+     * @return The book key
+     */
+    public static long key (Connect4Board board, int id) {
+        return board.canonicalKey(id == 2);
+    }
+
+    // Binary search for a key; returns the record index or -1.
+    private int find (long key) {
+        int lo = 0, hi = count-1;
+        while (lo <= hi) {
+            int mid = (lo+hi) >>> 1;
+            long k = records.getLong(mid*RECORD_BYTES);
+            if (k < key) lo = mid+1;
+            else if (k > key) hi = mid-1;
+            else return mid;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,176 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes an opening book for OpeningBook to read.  Every position that
+ * can come up in the first few moves of a game is searched to a fixed
+ * depth with a SearchEngine and its best move is recorded.
+ *
+ * Positions are counted from the empty board with player 1 to move, but
+ * since the book stores each position from the point of view of the
+ * player to move, the moves also apply when player 2 starts.  Mirror
+ * images are stored once.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class OpeningBookGenerator
+{
+    // Print program usage and exit.
+    private static void usage() {
+        System.err.println();
+        System.err.println("usage: OpeningBookGenerator [options] file");
+        System.err.println();
+        System.err.println("     r - Number of rows, >= 4.");
+        System.err.println("     c - Number of columns, >= 4.");
+        System.err.println("  game - Which game the book is for, first or most.");
+        System.err.println(" plies - Book positions with up to this many moves played.");
+        System.err.println(" depth - Depth to search each position to.");
+        System.err.println();
+        System.exit(1);
+    }
+
+    public static void main (String[] args) throws IOException, TimeUpException {
+        int rows = 6;
+        int cols = 7;
+        String game = "most";
+        int plies = 4;
+        int depth = 10;
+        String file = null;
+
+        for (int i=0; i<args.length; i++) {
+            if (args[i].equals("-r")) {
+                if (++i == args.length) usage();
+                rows = Integer.parseInt(args[i]);
+                if (rows < 4) usage();
+                continue;
+            }
+            if (args[i].equals("-c")) {
+                if (++i == args.length) usage();
+                cols = Integer.parseInt(args[i]);
+                if (cols < 4 || cols > 127) usage();
+                continue;
+            }
+            if (args[i].equals("-game")) {
+                if (++i == args.length) usage();
+                game = args[i];
+                if (!game.equals("first") && !game.equals("most")) usage();
+                continue;
+            }
+            if (args[i].equals("-plies")) {
+                if (++i == args.length) usage();
+                plies = Integer.parseInt(args[i]);
+                if (plies < 0) usage();
+                continue;
+            }
+            if (args[i].equals("-depth")) {
+                if (++i == args.length) usage();
+                depth = Integer.parseInt(args[i]);
+                if (depth < 1 || depth > 255) usage();
+                continue;
+            }
+            if (file != null || args[i].startsWith("-")) usage();
+            file = args[i];
+        }
+        if (file == null) usage();
+
+        Map<Long,Long> book = generate(rows,cols,game,plies,depth);
+        write(file,rows,cols,game,book);
+        System.err.println("wrote " + book.size() + " positions to " + file);
+    }
+
+    /**
+     * Search every position up to a number of plies.
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param game "first" or "most"
+     * @param plies Include positions with up to this many moves played
+     * @param depth The depth to search each position to
+     * @return Book key to record (value, move and depth packed as in the file)
+     * @throws TimeUpException Never; the searches are not timed
+     */
+    public static Map<Long,Long> generate (int rows, int cols, String game,
+                                           int plies, int depth)
+        throws TimeUpException {
+        TranspositionTable tt = new TranspositionTable(64);
+        SearchEngine engine = new SearchEngine(rows,cols,tt);
+        Arbitrator untimed = new Arbitrator();
+        Map<Long,Long> book = new HashMap<Long,Long>();
+        List<Connect4Board> level = new ArrayList<Connect4Board>();
+        level.add(new Connect4Board(rows,cols));
+
+        for (int ply=0; ply<=plies && !level.isEmpty(); ply++) {
+            int id = 1 + ply%2;
+            List<Connect4Board> next = new ArrayList<Connect4Board>();
+            for (Connect4Board board : level) {
+                // Search the board as player 1 sees it, like OpeningBook.
+                Connect4Board b = new Connect4Board(board);
+                if (id == 2) b.reverse();
+                long key = b.canonicalKey();
+                if (book.containsKey(key)) continue;
+
+                tt.newSearch();
+                engine.newSearch();
+                int value = engine.search(b,1,Math.min(depth,b.numEmptyCells()),untimed);
+                int move = engine.getBestMove();
+                if (b.key() != key) move = cols-1-move;
+                value = Math.max(Short.MIN_VALUE,Math.min(Short.MAX_VALUE,value));
+                book.put(key,((long) (value & 0xFFFF) << 16) | ((move & 0xFF) << 8) | depth);
+
+                if (ply == plies) continue;
+                for (int col=0; col<cols; col++) {
+                    if (!board.isValidMove(col)) continue;
+                    Connect4Board child = new Connect4Board(board);
+                    child.move(col,id);
+                    // A finished game needs no book move.
+                    if (child.isFull() || (game.equals("first") && child.hasWinner())) continue;
+                    next.add(child);
+                }
+            }
+            System.err.println("ply " + ply + ": " + book.size() + " positions");
+            level = next;
+        }
+        return book;
+    }
+
+    /**
+     * Write a book file.
+     * @param file The file name
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param game "first" or "most"
+     * @param book Book key to packed record, as returned by generate()
+     * @throws IOException If the file cannot be written
+     */
+    public static void write (String file, int rows, int cols, String game,
+                              Map<Long,Long> book)
+        throws IOException {
+        long[] keys = new long [book.size()];
+        int n = 0;
+        for (long key : book.keySet()) keys[n++] = key;
+        Arrays.sort(keys);
+
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeByte(game.charAt(0));
+            out.writeInt(keys.length);
+            for (long key : keys) {
+                long record = book.get(key);
+                out.writeLong(key);
+                out.writeShort((int) (record >>> 16));
+                out.writeByte((int) (record >>> 8));
+                out.writeByte((int) record);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * This class is a player that uses principal variation search with a transposition table,
+ * killer moves and a history heuristic (see SearchEngine).
+ * better move ordering means alpha beta cuts off more of the tree so it gets deeper
+ * than MickieNewmanPlayer in the same time.
+ *
+ * the transposition table, killer moves and history scores are kept from one move to the next,
+ * and a move starts searching at the depth the last move already searched the position to.
+ * when the game turns pondering on it also searches the reply it expects on the opponents time,
+ * so if the opponent plays it the next move starts even deeper.
+ *
+ * run with -Dconnect4.verbose=true to print the search counters after every move.
+ * run with -Dconnect4.book=file to play the opening from a book made by OpeningBookGenerator.
+ * run with -Dconnect4.eval=score to value positions by connect 4s only instead of by threats.
+ * run with -Dconnect4.evalcache.mb=size to cache the values of the leaves (default 0, off).
+ *
+ * @author Mickie Newman
+ */
+public class PVSPlayer implements Player, Ponderer {
+	private int id;
+	private SearchEngine engine;
+	private boolean verbose;
+	private OpeningBook book;// moves for the start of the game, null if there is no book
+	private int ponderPlies;// how far ponder moved the engine on from the last calcMove, 0 if it did not
+	private long ponderKey;// the position ponder searched for us to move in, if ponderPlies is 2
+	/**
+	 * sets name of the player
+	 *
+	 * @return string the players name
+	 */
+	public String name() {
+		return "PVS";
+	}
+	/**
+	 * init: sets the id and makes the search engine and its evaluator. the transposition table size in MB
+	 * comes from the connect4.tt.mb system property (default 16, 0 turns it off).
+	 * it also opens the opening book named by the connect4.book system property if there is one
+	 *
+	 * @param id The id of the player
+	 * @param msecPerMove miliseconds per move
+	 * @param rows number of rows in the connect 4 board
+	 * @param cols number of collumns in the connect 4 board
+	 */
+	public void init(int id, int msecPerMove, int rows, int cols) {
+		this.id = id;
+		int ttMegabytes = Integer.getInteger("connect4.tt.mb", 16);
+		TranspositionTable tt = ttMegabytes > 0 ? new TranspositionTable(ttMegabytes) : null;
+		this.engine = new SearchEngine(rows, cols, tt);
+		engine.setEvaluator(Evaluator.fromProperty(rows, cols));
+		engine.setEvalCache(EvalCache.fromProperty(0));
+		this.verbose = Boolean.getBoolean("connect4.verbose");
+		this.book = OpeningBook.fromProperty();
+		this.ponderPlies = 0;
+	}
+	/**
+	 * setGame: drops the opening book if it was made for the other game
+	 *
+	 * @param game "first" or "most"
+	 */
+	public void setGame(String game) {
+		if(book != null && !book.isFor(game))
+			book = null;
+	}
+	/**
+	 * calcMove: iterative deepening. it searches one move deeper each time and sets
+	 * the move found by the deepest search that finished until time runs out.
+	 * the first search is as deep as the transposition table already has this position.
+	 * the engine is only prepared for the new position here if ponder did not already do it
+	 *
+	 * @param board a Connect4 object the board configuration of the connect4 board
+	 * @param oppMoveCol an int the collumn of your opponents most recent move
+	 * @param arb an arbitrator object
+	 */
+	public void calcMove(Connect4Board board, int oppMoveCol, Arbitrator arb) throws TimeUpException{
+		if(board.isFull())
+			throw new Error("Error: the board is full!!!");
+		int pondered = ponderPlies;
+		ponderPlies = 0;
+
+		// positions in the opening book were searched ahead of time
+		int bookMove = book != null ? book.probe(board, id) : -1;
+		if(bookMove >= 0) {
+			arb.setMove(bookMove);
+			return;
+		}
+
+		TranspositionTable tt = engine.getTranspositionTable();
+		if(pondered == 2) {
+			// ponder searched a position as far on as this one. if it guessed wrong what it
+			// stored is for another position, so let this search replace it
+			if(tt != null && board.key() != ponderKey)
+				tt.newSearch();
+		}
+		else if(pondered == 1) {
+			engine.shiftKillers(1);// ponder searched the position one ply back
+		}
+		else {
+			if(tt != null)
+				tt.newSearch();
+			engine.newSearch();
+		}
+		int searchDepth = startDepth(board, arb);
+		int firstDepth = searchDepth;
+		try {
+			while(!arb.isTimeUp() && searchDepth <= board.numEmptyCells()) {
+				engine.search(board, id, searchDepth, arb);
+				arb.setMove(engine.getBestMove());
+				arb.getStats().setDepth(searchDepth);
+				if(verbose)
+					report(searchDepth);
+				searchDepth++;
+			}
+		}
+		finally {
+			if(verbose)
+				System.err.println(name() + ": completed depth " + (searchDepth - 1)
+						+ " (started at " + firstDepth + ")");
+		}
+	}
+	/**
+	 * ponder: guesses the opponents reply, the best move for them the transposition table has
+	 * after our move, and does iterative deepening on the position after it until the opponent
+	 * moves. the results go in the transposition table where calcMove finds them.
+	 * with no guess it searches the position after our move for the opponent instead.
+	 * either way it prepares the engine for the move, so calcMove does not do it again
+	 *
+	 * @param board a Connect4 object the board before our move
+	 * @param moveCol an int the collumn we just played
+	 * @param arb an arbitrator object, time is up when the opponent has moved
+	 */
+	public void ponder(Connect4Board board, int moveCol, Arbitrator arb) throws TimeUpException{
+		board.move(moveCol, id);
+		if(board.isFull())
+			return;
+		int toMove = 3 - id;
+		TranspositionTable tt = engine.getTranspositionTable();
+		long entry = tt != null ? tt.probe(board.key()) : TranspositionTable.MISS;
+		int reply = entry != TranspositionTable.MISS ? TranspositionTable.move(entry) : -1;
+		if(board.isValidMove(reply) && board.numEmptyCells() > 1) {
+			board.move(reply, toMove);
+			toMove = id;
+		}
+		if(tt != null)
+			tt.newSearch();
+		engine.newSearch(toMove == id ? 2 : 1);
+		ponderPlies = toMove == id ? 2 : 1;
+		ponderKey = board.key();
+		int searchDepth = toMove == id ? startDepth(board, arb) : 1;
+		try {
+			while(!arb.isTimeUp() && searchDepth <= board.numEmptyCells()) {
+				engine.search(board, toMove, searchDepth, arb);
+				searchDepth++;
+			}
+		}
+		finally {
+			if(verbose)
+				System.err.println(name() + ": pondered to depth " + (searchDepth - 1)
+						+ (toMove == id ? " expecting col " + reply : ""));
+		}
+	}
+	/**
+	 * startDepth: the depth to start iterative deepening at. the position was two moves down the
+	 * search for our last move, so if the transposition table still has it there is no point
+	 * searching it again less deeply than it was searched then. its best move is set in case
+	 * time runs out before the first search finishes
+	 *
+	 * @param board a Connect4 object the board configuration of the connect4 board
+	 * @param arb an arbitrator object
+	 * @return the depth to search first, at least 1
+	 */
+	private int startDepth(Connect4Board board, Arbitrator arb) throws TimeUpException{
+		TranspositionTable tt = engine.getTranspositionTable();
+		if(tt == null)
+			return 1;
+		long entry = tt.probe(board.key());
+		if(entry == TranspositionTable.MISS || !board.isValidMove(TranspositionTable.move(entry)))
+			return 1;
+		arb.setMove(TranspositionTable.move(entry));
+		return Math.max(1, Math.min(TranspositionTable.depth(entry), board.numEmptyCells()));
+	}
+	/**
+	 * report: prints the counters for the search that just finished
+	 *
+	 * @param depth an int the depth that was searched
+	 */
+	private void report(int depth) {
+		long prevNodes = depth > 1 ? engine.getNodesAtDepth(depth - 1) : 0;
+		System.err.printf("%s: depth %d nodes %d (x%.1f) cutoffs %.1f%% first-move %.1f%% researches %d%n",
+				name(), depth, engine.getNodes(),
+				prevNodes > 0 ? (double) engine.getNodes() / prevNodes : 0.0,
+				100 * engine.getCutoffRate(), 100 * engine.getFirstMoveCutoffRate(),
+				engine.getResearches());
+	}
+}
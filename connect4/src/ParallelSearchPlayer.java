@@ -0,0 +1,231 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is a player that splits its search across several threads at the root.
+ * each iteration of iterative deepening first searches the best move from the last
+ * iteration by itself to get a good alpha (young brothers wait), then searches all
+ * the other root moves at the same time on a ForkJoinPool with a null window against
+ * the best value found so far.
+ *
+ * every worker has its own SearchEngine and checks the Arbitrator, so when time runs
+ * out all of them stop. the workers share one lock free transposition table, so a root
+ * move finds what the last iteration learned about it whichever engine searches it.
+ *
+ * the number of threads comes from the constructor or the connect4.threads system
+ * property (default: one per processor). the threads belong to this player and stop
+ * when the game closes it.
+ * run with -Dconnect4.evalcache.mb=size to give the workers a shared cache of leaf values (default 0, off).
+ *
+ * @author Mickie Newman
+ */
+public class ParallelSearchPlayer implements Player {
+	private final int threads;
+	private ForkJoinPool pool;// made by init and shut down by close, one per game
+	private int id;
+	private int cols;
+	private SharedTranspositionTable tt;// shared by all the engines, null if it is turned off
+	private BlockingQueue<SearchEngine> engines;// engines not being used by a worker right now
+	private int[] rootMoves;// root moves in the order to search them, best first
+
+	// the best root move found by the current iteration, guarded by this
+	private int bestValue;
+	private int bestMove;
+
+	/**
+	 * creates a player that uses the connect4.threads system property or one thread per processor
+	 */
+	public ParallelSearchPlayer() {
+		this(SearchPools.defaultThreads());
+	}
+	/**
+	 * creates a player that searches with a given number of threads
+	 *
+	 * @param threads the number of threads to search with, at least 1
+	 */
+	public ParallelSearchPlayer(int threads) {
+		if(threads < 1)
+			throw new IllegalArgumentException("threads=" + threads);
+		this.threads = threads;
+	}
+	/**
+	 * sets name of the player
+	 *
+	 * @return string the players name
+	 */
+	public String name() {
+		return "Parallel x" + threads;
+	}
+	/**
+	 * init: sets the id and makes the thread pool, the shared transposition table and one search engine
+	 * and evaluator per thread. the table size in MB comes from the connect4.tt.mb system property
+	 * (default 16, 0 turns it off)
+	 *
+	 * @param id The id of the player
+	 * @param msecPerMove miliseconds per move
+	 * @param rows number of rows in the connect 4 board
+	 * @param cols number of collumns in the connect 4 board
+	 */
+	public void init(int id, int msecPerMove, int rows, int cols) {
+		this.id = id;
+		this.cols = cols;
+		close();
+		this.pool = new ForkJoinPool(threads);
+		int ttMegabytes = Integer.getInteger("connect4.tt.mb", 16);
+		this.tt = ttMegabytes > 0 ? new SharedTranspositionTable(ttMegabytes) : null;
+		engines = new ArrayBlockingQueue<SearchEngine>(threads);
+		EvalCache evalCache = EvalCache.fromProperty(0);// the engines share it like the table
+		for(int i = 0; i < threads; i++) {
+			SearchEngine engine = new SearchEngine(rows, cols, tt);
+			engine.setEvaluator(Evaluator.fromProperty(rows, cols));// each thread needs its own
+			engine.setEvalCache(evalCache);
+			engines.add(engine);
+		}
+	}
+	/**
+	 * close: shuts down the thread pool at the end of the game
+	 */
+	public void close() {
+		if(pool != null) {
+			pool.shutdownNow();
+			pool = null;
+		}
+	}
+	/**
+	 * calcMove: iterative deepening where each iteration is split across the threads at the root
+	 *
+	 * @param board a Connect4 object the board configuration of the connect4 board
+	 * @param oppMoveCol an int the collumn of your opponents most recent move
+	 * @param arb an arbitrator object
+	 */
+	public void calcMove(Connect4Board board, int oppMoveCol, Arbitrator arb) throws TimeUpException{
+		if(board.isFull())
+			throw new Error("Error: the board is full!!!");
+
+		if(tt != null)
+			tt.newSearch();// once, all the engines share it
+		for(SearchEngine engine : engines)
+			engine.newSearch();
+
+		// start with the moves in center first order
+		int numMoves = 0;
+		rootMoves = new int[cols];
+		for(int i = 0; i < cols; i++) {
+			int offset = (i + 1) / 2;
+			int col = (cols - 1) / 2 + ((i % 2) == 1 ? offset : -offset);
+			if(board.isValidMove(col))
+				rootMoves[numMoves++] = col;
+		}
+
+		int searchDepth = 1;
+		while(!arb.isTimeUp() && searchDepth <= board.numEmptyCells()) {
+			searchRoot(board, numMoves, searchDepth, arb);
+			arb.setMove(bestMove);
+			arb.getStats().setDepth(searchDepth);
+			// search the best move first next time
+			for(int i = 0; i < numMoves; i++) {
+				if(rootMoves[i] == bestMove) {
+					System.arraycopy(rootMoves, 0, rootMoves, 1, i);
+					rootMoves[0] = bestMove;
+					break;
+				}
+			}
+			searchDepth++;
+		}
+	}
+	/**
+	 * searchRoot: one iteration. the first root move is searched alone with a full window,
+	 * then the rest are searched in parallel. afterwards bestMove holds the best root move
+	 *
+	 * @param board the board to search, it is not changed
+	 * @param numMoves how many moves there are in rootMoves
+	 * @param depth the search depth
+	 * @param arb an arbitrator object
+	 */
+	private void searchRoot(Connect4Board board, int numMoves, int depth, Arbitrator arb) throws TimeUpException {
+		bestMove = rootMoves[0];
+		bestValue = searchMove(board, rootMoves[0], depth, -SearchEngine.INFINITY, arb);
+		AtomicInteger alpha = new AtomicInteger(bestValue);
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for(int i = 1; i < numMoves; i++) {
+			final int col = rootMoves[i];
+			tasks.add(() -> {
+				int a = alpha.get();
+				// a null window proves most moves are no better than the best one so far
+				int value = searchMove(board, col, depth, a, arb);
+				if(value > a) {
+					synchronized(this) {
+						if(value > bestValue) {
+							bestValue = value;
+							bestMove = col;
+						}
+					}
+					alpha.accumulateAndGet(value, Math::max);
+				}
+				return null;
+			});
+		}
+
+		for(Future<Void> f : pool.invokeAll(tasks)) {
+			try {
+				f.get();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new TimeUpException("interrupted");
+			}
+			catch(ExecutionException e) {
+				// the pool wraps checked exceptions so look through the causes for the time up
+				for(Throwable t = e.getCause(); t != null; t = t.getCause()) {
+					if(t instanceof TimeUpException)
+						throw (TimeUpException) t;
+				}
+				throw new Error(e.getCause());
+			}
+		}
+	}
+	/**
+	 * searchMove: finds the value of one root move with an engine that no other thread is using.
+	 * if alpha is -INFINITY the search uses a full window. otherwise it first uses a null window
+	 * and searches again with a window above alpha only if the move turns out better than alpha
+	 *
+	 * @param board the root board, it is copied and not changed
+	 * @param col the root move to search
+	 * @param depth the search depth of the root
+	 * @param alpha the best value already found at the root
+	 * @param arb an arbitrator object
+	 * @return the value of the move, exact if it is above alpha
+	 */
+	private int searchMove(Connect4Board board, int col, int depth, int alpha, Arbitrator arb) throws TimeUpException {
+		SearchEngine engine;
+		try {
+			engine = engines.take();// there is always one free, there are as many engines as threads
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TimeUpException("interrupted");
+		}
+		try {
+			Connect4Board child = new Connect4Board(board);
+			child.move(col, id);
+			int inf = SearchEngine.INFINITY;
+			if(alpha == -inf)
+				return -engine.search(child, 3 - id, depth - 1, -inf, inf, arb);
+			int value = -engine.search(child, 3 - id, depth - 1, -alpha - 1, -alpha, arb);
+			if(value > alpha)
+				value = -engine.search(child, 3 - id, depth - 1, -inf, -alpha, arb);
+			return value;
+		}
+		finally {
+			engines.add(engine);
+		}
+	}
+}
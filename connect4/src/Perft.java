@@ -0,0 +1,246 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the positions reachable in exactly n moves ("perft"), to check
+ * that a change to Connect4Board still generates the same game tree and
+ * to measure how fast it does so.
+ *
+ * A game that is over has no moves: for "first" games that is a board
+ * with a connect 4 on it or a full board, as Connect4Game.calcWinner()
+ * sees it, and for "most" games only a full board.  Positions reached
+ * at depth n are counted whether the game is over or not.
+ *
+ * Counts for the standard board sizes are kept in REFERENCE, and -check
+ * compares against them.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class Perft
+{
+    // Counts from the empty board with player 1 to move:
+    // { rows, cols, first (1) or most (0), count at depth 1, 2, ... }
+    private static final long[][] REFERENCE = {
+        { 6, 7, 1, 7L, 49L, 343L, 2401L, 16807L, 117649L, 823536L,
+          5673234L, 39394572L, 268031646L },
+        { 6, 7, 0, 7L, 49L, 343L, 2401L, 16807L, 117649L, 823536L,
+          5764458L, 40344150L, 282282042L },
+        { 5, 6, 1, 6L, 36L, 216L, 1296L, 7776L, 46650L, 279720L,
+          1644750L, 9751500L, 56359524L },
+        { 5, 6, 0, 6L, 36L, 216L, 1296L, 7776L, 46650L, 279720L,
+          1675170L, 10009020L, 59581620L },
+        { 7, 8, 1, 8L, 64L, 512L, 4096L, 32768L, 262144L, 2097152L,
+          16553656L, 131465088L, 1025234656L },
+        { 7, 8, 0, 8L, 64L, 512L, 4096L, 32768L, 262144L, 2097152L,
+          16777208L, 134217216L, 1073723616L },
+    };
+
+    // Print program usage and exit.
+    private static void usage() {
+        System.err.println();
+        System.err.println("usage: Perft [options] depth");
+        System.err.println();
+        System.err.println("       r - Number of rows, >= 4.");
+        System.err.println("       c - Number of columns, >= 4.");
+        System.err.println("    game - Which game, first or most.");
+        System.err.println(" threads - Threads to split the root moves between.");
+        System.err.println("  divide - Print the count below each root move.");
+        System.err.println("   check - Compare every count with the reference counts.");
+        System.err.println();
+        System.exit(1);
+    }
+
+    public static void main (String[] args) throws InterruptedException {
+        int rows = 6;
+        int cols = 7;
+        String game = "first";
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean divide = false;
+        boolean check = false;
+        int depth = -1;
+
+        for (int i=0; i<args.length; i++) {
+            if (args[i].equals("-r")) {
+                if (++i == args.length) usage();
+                rows = Integer.parseInt(args[i]);
+                if (rows < 4) usage();
+                continue;
+            }
+            if (args[i].equals("-c")) {
+                if (++i == args.length) usage();
+                cols = Integer.parseInt(args[i]);
+                if (cols < 4) usage();
+                continue;
+            }
+            if (args[i].equals("-game")) {
+                if (++i == args.length) usage();
+                game = args[i];
+                if (!game.equals("first") && !game.equals("most")) usage();
+                continue;
+            }
+            if (args[i].equals("-threads")) {
+                if (++i == args.length) usage();
+                threads = Integer.parseInt(args[i]);
+                if (threads < 1) usage();
+                continue;
+            }
+            if (args[i].equals("-divide")) {
+                divide = true;
+                continue;
+            }
+            if (args[i].equals("-check")) {
+                check = true;
+                continue;
+            }
+            if (depth >= 0 || args[i].startsWith("-")) usage();
+            depth = Integer.parseInt(args[i]);
+            if (depth < 0 || depth > rows*cols) usage();
+        }
+        if (depth < 0) usage();
+
+        boolean first = game.equals("first");
+        long[] reference = reference(rows,cols,first);
+        if (check && reference == null) {
+            System.err.println("No reference counts for " + rows + "x" + cols + " " + game);
+            System.exit(1);
+        }
+
+        Connect4Board board = new Connect4Board(rows,cols);
+        boolean ok = true;
+        for (int d=1; d<=depth; d++) {
+            long start = System.nanoTime();
+            long[] counts = divide(board,1,d,first,threads);
+            long nanos = System.nanoTime() - start;
+            long total = 0;
+            for (long n : counts) total += n;
+
+            String line = "depth " + d + ": " + total + " positions, "
+                + String.format("%.1f", nanos / 1e6) + " ms, "
+                + String.format("%.0f", total / Math.max(nanos / 1e9, 1e-9)) + " positions/sec";
+            if (check) {
+                if (d >= reference.length) {
+                    line += ", no reference";
+                } else if (reference[d] == total) {
+                    line += ", ok";
+                } else {
+                    line += ", expected " + reference[d];
+                    ok = false;
+                }
+            }
+            System.out.println(line);
+            if (divide && d == depth) {
+                for (int col=0; col<cols; col++) {
+                    if (board.isValidMove(col)) {
+                        System.out.println("  col " + col + ": " + counts[col]);
+                    }
+                }
+            }
+        }
+        if (!ok) System.exit(1);
+    }
+
+    // The reference counts for a board, indexed by depth, or null if
+    // there are none.
+    private static long[] reference (int rows, int cols, boolean first) {
+        for (long[] r : REFERENCE) {
+            if (r[0] == rows && r[1] == cols && r[2] == (first ? 1 : 0)) {
+                long[] counts = new long [r.length - 2];
+                counts[0] = 1;
+                System.arraycopy(r,3,counts,1,r.length-3);
+                return counts;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Count the positions reachable in exactly depth moves.
+     * @param board The board to count from; it is the same board again
+     *              when this returns
+     * @param id The player to move
+     * @param depth The number of moves
+     * @param first True for "first" games, which end at the first
+     *              connect 4; false for "most" games
+     * @return The number of positions
+     */
+    public static long perft (Connect4Board board, int id, int depth, boolean first) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (board.isFull() || (first && board.hasWinner())) {
+            return 0;
+        }
+        int cols = board.numCols();
+        long count = 0;
+        if (depth == 1) {
+            // Every move leads to one position; no need to make them.
+            for (int col=0; col<cols; col++) {
+                if (board.isValidMove(col)) count++;
+            }
+            return count;
+        }
+        for (int col=0; col<cols; col++) {
+            if (!board.isValidMove(col)) continue;
+            board.move(col,id);
+            count += perft(board,3-id,depth-1,first);
+            board.unmove(col,id);
+        }
+        return count;
+    }
+
+    /**
+     * Count the positions reachable in exactly depth moves below each
+     * root move, with the root moves shared out between threads.
+     * @param board The board to count from; it is not changed
+     * @param id The player to move
+     * @param depth The number of moves, at least 1
+     * @param first True for "first" games, false for "most" games
+     * @param threads The number of threads to use
+     * @return The count for each column, 0 for columns that are full
+     *         or when the game is already over
+     * @throws InterruptedException If interrupted while waiting for the
+     *         threads
+     */
+    public static long[] divide (Connect4Board board, int id, int depth,
+                                 boolean first, int threads)
+        throws InterruptedException {
+        int cols = board.numCols();
+        long[] counts = new long [cols];
+        if (board.isFull() || (first && board.hasWinner())) {
+            return counts;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1,Math.min(threads,cols)));
+        try {
+            List<Future<Long>> jobs = new ArrayList<Future<Long>>();
+            for (int col=0; col<cols; col++) {
+                if (!board.isValidMove(col)) {
+                    jobs.add(null);
+                    continue;
+                }
+                // Each thread gets its own board.
+                Connect4Board child = new Connect4Board(board);
+                child.move(col,id);
+                jobs.add(pool.submit(() -> perft(child,3-id,depth-1,first)));
+            }
+            for (int col=0; col<cols; col++) {
+                if (jobs.get(col) == null) continue;
+                try {
+                    counts[col] = jobs.get(col).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new Error(e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return counts;
+    }
+}
@@ -27,6 +27,18 @@ public interface Player
      */
     void init(int id, int msecPerMove, int rows, int cols);
 
+
+    /**
+     * Tell the player which game is being played, "first" (first
+     * connect 4 wins) or "most" (most connect 4s wins).  The game calls
+     * this method after init() and before any calls to calcMove().
+     * Players that play both games the same way can ignore it.
+     * 
+     * @param game "first" or "most"
+     */
+    default void setGame(String game) {
+    }
+
     
     /**
      * Called by driver program to calculate the next move.
@@ -39,4 +51,14 @@ public interface Player
      */
     void calcMove(Connect4Board board, int oppMoveCol, Arbitrator arb) 
         throws TimeUpException;
+
+
+    /**
+     * Tell the player the game is over, so it can release threads or
+     * other resources it made in init().  The game calls this method
+     * after the last call to calcMove(); it may call init() again to
+     * start another game.  Players that hold nothing can ignore it.
+     */
+    default void close() {
+    }
 }
@@ -0,0 +1,271 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a player's calcMove() under the game's time limit.  The player
+ * runs in its own thread so the game is protected from its exceptions
+ * and infinite loops; a player that does not stop when its time is up
+ * is disqualified.  The same thread is used for move after move until
+ * the player crashes or is disqualified, and close() stops it.
+ *
+ * Both the GUI game and the headless MatchEngine use this class, so
+ * players are timed the same way in both.
+ *
+ * The runner also keeps what the player reported through
+ * Arbitrator.getStats(), with the time each move took, for the last
+ * move and added up over every move it ran.
+ *
+ * With pondering turned on, a player that implements Ponderer ponders
+ * on its own thread from the moment it moves until the game asks it for
+ * its next move, unless the move ends the game (see setGame()).  Stopping it is not counted against the next move's
+ * time, but a player that does not stop within the grace period is
+ * disqualified as if it had taken too long over the move.  Pondering is
+ * only fair when each player has a processor to itself, see
+ * canPonder().
+ *
+ * @author Mickie Newman
+ *
+ */
+public class PlayerRunner
+{
+    // Returned by calcMove() when the player is disqualified.
+    public static final int NO_MOVE = -1;
+
+    // How long a player has to stop after its time is up.
+    private static final int GRACE_MSEC = 500;
+
+    // Calls Arbitrator.timeUp() at each move's deadline.
+    private static final ScheduledThreadPoolExecutor TIMER = newTimer();
+
+    private static ScheduledThreadPoolExecutor newTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,r -> {
+            Thread t = new Thread(r,"connect4-move-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    private final Player player;
+    private PlayerThread worker;    // null until the first move, or after a bad one
+    private boolean timedOut;
+    private boolean ponder;
+    private int id;                 // The player's id, 0 until setGame()
+    private boolean firstGame;
+    private Arbitrator ponderArb;       // null when not pondering
+    private CountDownLatch ponderDone;
+    private SearchStats lastStats = new SearchStats();
+    private final SearchStats totalStats = new SearchStats();
+
+    /**
+     * Create a runner for a player.
+     * @param player The player to run
+     */
+    public PlayerRunner (Player player) {
+        this.player = player;
+    }
+
+    /**
+     * Get the player this runner runs.
+     * @return The player
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Check if there are enough processors for both players to ponder
+     * without taking time from the player whose move it is.
+     * @return True if pondering is fair on this machine
+     */
+    public static boolean canPonder() {
+        return Runtime.getRuntime().availableProcessors() >= 2;
+    }
+
+    /**
+     * Turn pondering on or off.  It is only used if the player
+     * implements Ponderer.  Both players of a game should be given the
+     * same setting.
+     * @param ponder True to let the player ponder
+     */
+    public void setPonder (boolean ponder) {
+        this.ponder = ponder;
+    }
+
+    /**
+     * Tell the runner which player it runs and which game is played,
+     * so that it does not start pondering after a move that wins the
+     * game.  Without this it only knows that a move that fills the
+     * board ends the game.
+     * @param id The player's id
+     * @param game "first" or "most"
+     */
+    public void setGame (int id, String game) {
+        this.id = id;
+        this.firstGame = "first".equals(game);
+    }
+
+    /**
+     * Let the player calculate its next move.  The player is not
+     * permitted to spend more than msecPerMove time (plus a 20% grace
+     * period) doing this; if it is still running after that and does not
+     * stop soon after being told its time is up, it is disqualified.
+     * Returns as soon as the player's calcMove() returns.  If the
+     * player was pondering, it is stopped first.
+     * @param board The current board; the player gets a copy
+     * @param prevMoveCol Column of the opponent's most recent move, or -1
+     * @param msecPerMove Time allowed for the move
+     * @return The column the player chose, which may not be a valid move,
+     *         or NO_MOVE if the player was disqualified
+     */
+    public int calcMove (Connect4Board board, int prevMoveCol, int msecPerMove) {
+        if (!stopPondering()) {
+            lastStats = new SearchStats();
+            timedOut = true;
+            return NO_MOVE;
+        }
+        // Run the player in a separate thread so we are protected
+        // from its exceptions and infinite loops.
+        if (worker == null) {
+            worker = new PlayerThread(player,board.numRows(),board.numCols());
+            worker.start();
+        }
+        int msecAllowed = msecPerMove * 120 / 100;
+        Arbitrator arb = new Arbitrator(msecAllowed);
+        // Tell the player its time is up right at the deadline, even
+        // while this thread is waiting.
+        ScheduledFuture<?> deadline =
+            TIMER.schedule(arb::timeUp,msecAllowed,TimeUnit.MILLISECONDS);
+
+        // Wait until the player is done, or until it has had its time
+        // and GRACE_MSEC to notice that time is up.
+        boolean done;
+        long start = System.nanoTime();
+        try {
+            CountDownLatch latch = worker.startMove(board,prevMoveCol,arb);
+            done = latch.await(msecAllowed + GRACE_MSEC,TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done = false;
+        }
+        long nanos = System.nanoTime() - start;
+        deadline.cancel(false);
+
+        // If the player is already done calculating its next move, then
+        // this has no effect except to stop it changing its move.
+        arb.timeUp();
+        lastStats = arb.getStats();
+        lastStats.endMove(nanos);
+        totalStats.add(lastStats);
+
+        // A thread that is stuck or whose player crashed is not used
+        // again; the next move gets a fresh one.
+        if (!done || worker.hasCrashed()) {
+            worker.retire();
+            worker = null;
+        }
+
+        // If the player thread has still not finished, then disqualify
+        // it; otherwise, return whatever move it calculated.
+        timedOut = !done;
+        if (timedOut) {
+            return NO_MOVE;
+        }
+        int col = arb.getMove();
+        if (ponder && worker != null && player instanceof Ponderer && board.isValidMove(col)
+            && !endsGame(board,col)) {
+            startPondering(board,col);
+        }
+        return col;
+    }
+
+    // Check if the player's move ends the game, so there is nothing to
+    // ponder.
+    private boolean endsGame (Connect4Board board, int col) {
+        if (board.numEmptyCells() == 1) {
+            return true;
+        }
+        if (!firstGame || id == 0) {
+            return false;
+        }
+        Connect4Board after = new Connect4Board(board);
+        after.move(col,id);
+        return after.score(id) > 0;
+    }
+
+    // Let the player ponder on its thread until stopPondering().
+    private void startPondering (Connect4Board board, int col) {
+        ponderArb = new Arbitrator();
+        try {
+            ponderDone = worker.startPonder(board,col,ponderArb);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ponderArb = null;
+        }
+    }
+
+    // Tell the player to stop pondering and wait for it to.  Returns
+    // false if it did not stop within the grace period; its thread is
+    // then retired.
+    private boolean stopPondering() {
+        if (ponderArb == null) {
+            return true;
+        }
+        ponderArb.timeUp();
+        boolean done;
+        try {
+            done = ponderDone.await(GRACE_MSEC,TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done = false;
+        }
+        ponderArb = null;
+        ponderDone = null;
+        if (!done || worker.hasCrashed()) {
+            worker.retire();
+            worker = null;
+        }
+        return done;
+    }
+
+    /**
+     * Stop the player's thread and tell the player the game is over.
+     * Call this when the game is over.
+     */
+    public void close() {
+        stopPondering();
+        if (worker != null) {
+            worker.retire();
+            worker = null;
+        }
+        player.close();
+    }
+
+    /**
+     * Get what the player reported for the last move.
+     * @return The last move's stats, empty if the player reported nothing
+     */
+    public SearchStats getLastStats() {
+        return lastStats;
+    }
+
+    /**
+     * Get what the player reported for every move this runner ran.
+     * @return The stats added up over all the moves
+     */
+    public SearchStats getTotalStats() {
+        return totalStats;
+    }
+
+    /**
+     * Check if the player was disqualified by the last calcMove() for
+     * not stopping when its time was up.
+     * @return True if the player took too much time
+     */
+    public boolean timedOut() {
+        return timedOut;
+    }
+}
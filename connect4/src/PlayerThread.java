@@ -1,33 +1,116 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+
 /**
  * The thread within which the player's calcMove() method is called.
  * We need to keep the player in a separate thread in order to keep
  * the game running in the event that the player misbehaves or
  * crashes.
- * 
+ *
+ * One thread serves a player for many moves: the game hands it each
+ * move through a queue and waits on the move's latch, which is
+ * released as soon as calcMove() returns or throws.  A thread whose
+ * player crashed stops by itself; one whose player would not stop in
+ * time is retired, and either way the game starts a fresh thread for
+ * the player's next move.
+ *
+ * The thread also runs a Ponderer's ponder() between moves, at the
+ * lowest priority so that it gets less of the processor than the
+ * opponent.
+ *
  * @author Daniel Szafir
  *
  */
 class PlayerThread extends Thread
 {
-    private Player player;
-    private Connect4Board board;
-    private int oppMoveCol;
-    private Arbitrator arb;
-
-    // Make sure to copy the board in the constructor so that the
-    // player can't do any damage to the real board.
-    public PlayerThread (
-        Player player, Connect4Board board, int oppMoveCol, Arbitrator arb) {
+    // One call to calcMove(), or to ponder().
+    private static class Request {
+        final int col;      // oppMoveCol for calcMove(), moveCol for ponder()
+        final Arbitrator arb;
+        final boolean ponder;
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Request (int col, Arbitrator arb, boolean ponder) {
+            this.col = col;
+            this.arb = arb;
+            this.ponder = ponder;
+        }
+    }
+
+    private final Player player;
+    private final Connect4Board board;
+    private final SynchronousQueue<Request> requests = new SynchronousQueue<Request>();
+    private volatile boolean retired;
+    private volatile boolean crashed;
+
+    public PlayerThread (Player player, int rows, int cols) {
+        super("connect4-player-" + player.getClass().getName());
         this.player = player;
-        this.board = new Connect4Board(board);
-        this.oppMoveCol = oppMoveCol;
-        this.arb = arb;
+        this.board = new Connect4Board(rows,cols);
+        setDaemon(true);
+    }
+
+    // Start calculating a move.  Make sure to copy the board so that
+    // the player can't do any damage to the real board.  Must only be
+    // called while the thread is idle, i.e. after the previous move's
+    // latch was released.
+    public CountDownLatch startMove (Connect4Board board, int oppMoveCol, Arbitrator arb)
+        throws InterruptedException {
+        return start(board,new Request(oppMoveCol,arb,false));
+    }
+
+    // Start pondering, in the same way; the player must be a Ponderer.
+    // The board is the one the player just moved on.
+    public CountDownLatch startPonder (Connect4Board board, int moveCol, Arbitrator arb)
+        throws InterruptedException {
+        return start(board,new Request(moveCol,arb,true));
+    }
+
+    private CountDownLatch start (Connect4Board board, Request r)
+        throws InterruptedException {
+        this.board.copy(board);
+        requests.put(r);
+        return r.done;
     }
 
     public void run() {
-        try {
-            player.calcMove(board,oppMoveCol,arb);
-        } catch (TimeUpException e) {
+        while (!retired && !crashed) {
+            Request r;
+            try {
+                r = requests.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            try {
+                if (r.ponder) {
+                    setPriority(MIN_PRIORITY);
+                    try {
+                        ((Ponderer) player).ponder(board,r.col,r.arb);
+                    } finally {
+                        setPriority(NORM_PRIORITY);
+                    }
+                } else {
+                    player.calcMove(board,r.col,r.arb);
+                }
+            } catch (TimeUpException e) {
+            } catch (Throwable t) {
+                crashed = true;
+                getUncaughtExceptionHandler().uncaughtException(this,t);
+            } finally {
+                r.done.countDown();
+            }
         }
     }
+
+    // True if the player threw something other than TimeUpException;
+    // the thread has stopped.
+    public boolean hasCrashed() {
+        return crashed;
+    }
+
+    // Stop the thread once the player returns, if it ever does.
+    public void retire() {
+        retired = true;
+        interrupt();
+    }
 }
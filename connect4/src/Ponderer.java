@@ -0,0 +1,28 @@
+/**
+ * A player that can think on its opponent's time.  When the game has
+ * pondering turned on, it calls ponder() on the player's thread as soon
+ * as the player has moved, and stops it when the opponent has moved,
+ * just before the player's next calcMove().  Players that do not
+ * implement this interface just wait.
+ *
+ * @author Mickie Newman
+ *
+ */
+public interface Ponderer
+{
+    /**
+     * Think about the game while the opponent chooses a move, for
+     * example by searching the reply the player expects so that its
+     * next calcMove() can start from what it found.  Time is up when
+     * the opponent has moved; the player should then return soon, as it
+     * would from calcMove(), or it is disqualified.  Pondering does not
+     * choose a move, so it does not matter what move is set on arb.
+     *
+     * @param board the board before the player's move; the player gets a copy
+     * @param moveCol the column the player just played
+     * @param arb tells the player when to stop
+     * @throws TimeUpException If the player notices that time is up
+     */
+    void ponder(Connect4Board board, int moveCol, Arbitrator arb)
+        throws TimeUpException;
+}
@@ -0,0 +1,23 @@
+/**
+ * Values a position at the player's connect 4s minus the opponent's,
+ * which the board already keeps count of.  It gives no signal until
+ * someone has four in a row; ThreatEvaluator does better.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class ScoreEvaluator implements Evaluator
+{
+    public void reset (Connect4Board board) {
+    }
+
+    public void move (int row, int col, int id) {
+    }
+
+    public void unmove (int row, int col, int id) {
+    }
+
+    public int evaluate (Connect4Board board, int id) {
+        return board.score(id) - board.score(3-id);
+    }
+}
@@ -0,0 +1,425 @@
+/**
+ * An alpha-beta search engine for players that want to look deeper
+ * than the basic minimax players.  It uses principal variation search
+ * (NegaScout) on a single board with move()/unmove(), so nothing is
+ * allocated while searching.
+ *
+ * Moves are tried in this order: the transposition table move, the two
+ * killer moves for the ply, then the rest by history score.  Ties are
+ * broken center column first, which is also the order used when there
+ * is no other information.
+ *
+ * Values are always from the point of view of the player to move.  The
+ * leaves are valued by an Evaluator, by default a ScoreEvaluator: the
+ * player's connect 4s minus the opponent's.  An EvalCache can be added
+ * for evaluators that are slow enough to be worth caching.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class SearchEngine
+{
+    // Larger than any evaluation.
+    public static final int INFINITY = 1000000;
+
+    // Order bonuses; history scores are kept below these.
+    private static final int TT_MOVE_SCORE = 1 << 30;
+    private static final int KILLER1_SCORE = 1 << 29;
+    private static final int KILLER2_SCORE = 1 << 28;
+    private static final int HISTORY_MAX = 1 << 27;
+
+    private final int rows, cols;
+    private final TranspositionTable tt;
+    private final int[] centerOrder;    // Columns, center first.
+    private final int[][] moves;        // Move buffer per ply.
+    private final int[][] moveScores;   // Ordering score per buffered move.
+    private final int[][] killers;      // Two killer moves per ply.
+    private final int[][] history;      // [id][cell] cutoff history.
+
+    private Evaluator eval = new ScoreEvaluator();
+    private EvalCache evalCache;
+    private Arbitrator arb;
+    private int bestMove;
+
+    // Counters for the most recent call to search().
+    private long nodes;
+    private long interiorNodes;
+    private long betaCutoffs;
+    private long firstMoveCutoffs;
+    private long researches;
+    private long ttProbes, ttHits;
+
+    // Nodes searched by the most recent search to each depth.
+    private final long[] nodesAtDepth;
+
+    // Nodes searched by every call to search(), finished or not.
+    private long totalNodes;
+
+    /**
+     * Create an engine for boards of the given size.
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param tt The transposition table to use, or null for none
+     */
+    public SearchEngine (int rows, int cols, TranspositionTable tt) {
+        this.rows = rows;
+        this.cols = cols;
+        this.tt = tt;
+        int maxPly = rows*cols + 1;
+        this.moves = new int [maxPly][cols];
+        this.moveScores = new int [maxPly][cols];
+        this.killers = new int [maxPly][2];
+        this.history = new int [3][rows*cols];
+        this.nodesAtDepth = new long [maxPly];
+        this.centerOrder = new int [cols];
+        for (int i=0; i<cols; i++) {
+            // 0, +1, -1, +2, -2, ... away from the middle column.
+            int offset = (i+1)/2;
+            centerOrder[i] = (cols-1)/2 + ((i%2)==1 ? offset : -offset);
+        }
+        clearKillers();
+    }
+
+    /**
+     * Get the transposition table used by this engine.
+     * @return The table, or null if there is none
+     */
+    public TranspositionTable getTranspositionTable() {
+        return tt;
+    }
+
+    /**
+     * Set how the leaves of the search are valued.  The evaluator is
+     * used only by this engine.
+     * @param eval The evaluator
+     */
+    public void setEvaluator (Evaluator eval) {
+        this.eval = eval;
+    }
+
+    /**
+     * Set the cache the leaf values are kept in.  It may be shared with
+     * other engines that use the same kind of evaluator.
+     * @param evalCache The cache, or null for none
+     */
+    public void setEvalCache (EvalCache evalCache) {
+        this.evalCache = evalCache;
+    }
+
+    /**
+     * Get how the leaves of the search are valued.
+     * @return The evaluator
+     */
+    public Evaluator getEvaluator() {
+        return eval;
+    }
+
+    /**
+     * Prepare for the searches for a new move.  The new position is
+     * usually two plies on from the last one, so the killer moves of
+     * each ply move up two plies.  History scores are halved so that
+     * they favor what was learned recently.  The transposition table
+     * may be shared with other engines, so its newSearch() is left to
+     * whoever made it, once per move.
+     */
+    public void newSearch() {
+        newSearch(2);
+    }
+
+    /**
+     * Prepare for the searches of a position that is a given number of
+     * plies on from the last one searched, like newSearch().
+     * @param plies Plies from the last position searched, at least 0
+     */
+    public void newSearch (int plies) {
+        shiftKillers(plies);
+        for (int[] h : history) {
+            for (int i=0; i<h.length; i++) h[i] >>= 1;
+        }
+    }
+
+    /**
+     * Move the killer moves of each ply up a number of plies, for a
+     * search of a position that many plies on from the last one that
+     * belongs to the same move, so history scores are kept as they are.
+     * @param plies Plies from the last position searched, at least 0
+     */
+    public void shiftKillers (int plies) {
+        for (int p=0; p<killers.length; p++) {
+            if (p+plies < killers.length) {
+                killers[p][0] = killers[p+plies][0];
+                killers[p][1] = killers[p+plies][1];
+            } else {
+                killers[p][0] = killers[p][1] = -1;
+            }
+        }
+    }
+
+    private void clearKillers() {
+        for (int[] k : killers) {
+            k[0] = k[1] = -1;
+        }
+    }
+
+    /**
+     * Search a position to a fixed depth.  The board is changed during
+     * the search but is always restored, even if time runs out.
+     * @param board The position to search
+     * @param id The player to move
+     * @param depth The number of moves to look ahead
+     * @param arb Checked regularly so that the search stops when time is up
+     * @return The value of the position for player id
+     * @throws TimeUpException If time runs out before the search is done
+     */
+    public int search (Connect4Board board, int id, int depth, Arbitrator arb)
+        throws TimeUpException {
+        return search(board,id,depth,-INFINITY,INFINITY,arb);
+    }
+
+    /**
+     * Search a position to a fixed depth with an alpha-beta window.  If
+     * the value is outside the window, the value returned is only a
+     * bound: at most alpha if it failed low, at least beta if it failed
+     * high.
+     * @param board The position to search
+     * @param id The player to move
+     * @param depth The number of moves to look ahead
+     * @param alpha The value player id is already sure of
+     * @param beta The value the opponent can already hold player id to
+     * @param arb Checked regularly so that the search stops when time is
+     *            up; the search's counters are added to its stats
+     * @return The value of the position for player id
+     * @throws TimeUpException If time runs out before the search is done
+     */
+    public int search (Connect4Board board, int id, int depth,
+                       int alpha, int beta, Arbitrator arb)
+        throws TimeUpException {
+        this.arb = arb;
+        this.bestMove = -1;
+        nodes = interiorNodes = betaCutoffs = firstMoveCutoffs = researches = 0;
+        ttProbes = ttHits = 0;
+        eval.reset(board);
+        try {
+            int value = pvs(board,id,depth,0,alpha,beta);
+            nodesAtDepth[depth] = nodes;
+            return value;
+        } finally {
+            totalNodes += nodes;
+            SearchStats stats = arb.getStats();
+            stats.addNodes(nodes);
+            stats.addTTProbes(ttProbes,ttHits);
+            stats.addCutoffs(betaCutoffs,interiorNodes);
+        }
+    }
+
+    /**
+     * Get the best move found at the root by the last completed search.
+     * @return The column to play, or -1 if no search has completed
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Get the number of nodes visited by the most recent search.
+     * @return The node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the number of nodes visited by all searches so far, including
+     * ones that ran out of time.
+     * @return The node count
+     */
+    public long getTotalNodes() {
+        return totalNodes;
+    }
+
+    /**
+     * Get the number of nodes the most recent search to a given depth
+     * visited.  Comparing depths shows the effective branching factor.
+     * @param depth The search depth
+     * @return The node count, or 0 if there was no search to that depth
+     */
+    public long getNodesAtDepth (int depth) {
+        return nodesAtDepth[depth];
+    }
+
+    /**
+     * Get the fraction of interior nodes of the most recent search that
+     * ended with a beta cutoff.
+     * @return The cutoff rate, 0 to 1
+     */
+    public double getCutoffRate() {
+        return interiorNodes == 0 ? 0 : (double) betaCutoffs / interiorNodes;
+    }
+
+    /**
+     * Get the fraction of beta cutoffs that came from the first move
+     * tried.  The closer this is to 1 the better the move ordering.
+     * @return The first move cutoff rate, 0 to 1
+     */
+    public double getFirstMoveCutoffRate() {
+        return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+
+    /**
+     * Get the number of beta cutoffs in the most recent search.
+     * @return The cutoff count
+     */
+    public long getBetaCutoffs() {
+        return betaCutoffs;
+    }
+
+    /**
+     * Get the number of interior nodes (nodes whose moves were searched)
+     * in the most recent search.
+     * @return The interior node count
+     */
+    public long getInteriorNodes() {
+        return interiorNodes;
+    }
+
+    /**
+     * Get the number of times a null-window search failed high and the
+     * move had to be searched again with the full window.
+     * @return The re-search count
+     */
+    public long getResearches() {
+        return researches;
+    }
+
+    // Evaluate a leaf for the player to move, through the cache if
+    // there is one.
+    private int evaluate (Connect4Board board, int id) {
+        if (evalCache == null) {
+            return eval.evaluate(board,id);
+        }
+        long key = board.key();
+        int v = evalCache.probe(key,id);
+        if (v == EvalCache.MISS) {
+            v = eval.evaluate(board,id);
+            evalCache.store(key,id,v);
+        }
+        return v;
+    }
+
+    private int pvs (Connect4Board board, int id, int depth, int ply, int alpha, int beta)
+        throws TimeUpException {
+        arb.checkTime(++nodes);
+        if (depth == 0 || board.isFull()) {
+            return evaluate(board,id);
+        }
+
+        long key = board.key();
+        int ttMove = -1;
+        if (tt != null) {
+            long entry = tt.probe(key);
+            ttProbes++;
+            if (entry != TranspositionTable.MISS) {
+                ttHits++;
+                ttMove = TranspositionTable.move(entry);
+                // Never cut off the root; it has to pick a move.
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                    int v = TranspositionTable.value(entry);
+                    switch (TranspositionTable.bound(entry)) {
+                        case TranspositionTable.EXACT:
+                            return v;
+                        case TranspositionTable.LOWER:
+                            alpha = Math.max(alpha,v);
+                            break;
+                        case TranspositionTable.UPPER:
+                            beta = Math.min(beta,v);
+                            break;
+                    }
+                    if (alpha >= beta) return v;
+                }
+            }
+        }
+        final int searchAlpha = alpha;
+        interiorNodes++;
+
+        int n = orderMoves(board,id,ply,ttMove);
+        int[] ms = moves[ply];
+        int best = -INFINITY;
+        int bestCol = -1;
+        for (int i=0; i<n; i++) {
+            int col = ms[i];
+            int v;
+            int row = board.move(col,id);
+            eval.move(row,col,id);
+            try {
+                if (i == 0) {
+                    v = -pvs(board,3-id,depth-1,ply+1,-beta,-alpha);
+                } else {
+                    // Prove this move is no better than the best so far
+                    // with a null window; search it again if it is.
+                    v = -pvs(board,3-id,depth-1,ply+1,-alpha-1,-alpha);
+                    if (v > alpha && v < beta) {
+                        researches++;
+                        v = -pvs(board,3-id,depth-1,ply+1,-beta,-alpha);
+                    }
+                }
+            } finally {
+                eval.unmove(row,col,id);
+                board.unmove(col,id);
+            }
+            if (v > best) {
+                best = v;
+                bestCol = col;
+                if (v > alpha) alpha = v;
+            }
+            if (alpha >= beta) {
+                betaCutoffs++;
+                if (i == 0) firstMoveCutoffs++;
+                if (col != killers[ply][0]) {
+                    killers[ply][1] = killers[ply][0];
+                    killers[ply][0] = col;
+                }
+                int cell = col*rows + board.numOccupiedCells(col);
+                history[id][cell] = Math.min(HISTORY_MAX,history[id][cell] + depth*depth);
+                break;
+            }
+        }
+
+        if (tt != null) {
+            int bound = TranspositionTable.EXACT;
+            if (best <= searchAlpha) bound = TranspositionTable.UPPER;
+            else if (best >= beta) bound = TranspositionTable.LOWER;
+            tt.store(key,depth,bound,best,bestCol);
+        }
+        if (ply == 0) {
+            bestMove = bestCol;
+        }
+        return best;
+    }
+
+    // Fill moves[ply] with the legal moves, best first, and return how
+    // many there are.
+    private int orderMoves (Connect4Board board, int id, int ply, int ttMove) {
+        int[] ms = moves[ply];
+        int[] scores = moveScores[ply];
+        int n = 0;
+        for (int i=0; i<cols; i++) {
+            int col = centerOrder[i];
+            if (board.isColumnFull(col)) continue;
+            int score;
+            if (col == ttMove) score = TT_MOVE_SCORE;
+            else if (col == killers[ply][0]) score = KILLER1_SCORE;
+            else if (col == killers[ply][1]) score = KILLER2_SCORE;
+            else score = history[id][col*rows + board.numOccupiedCells(col)];
+            // Insertion sort, stable so that ties stay center first.
+            int j = n++;
+            while (j > 0 && scores[j-1] < score) {
+                ms[j] = ms[j-1];
+                scores[j] = scores[j-1];
+                j--;
+            }
+            ms[j] = col;
+            scores[j] = score;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Thread settings for the multi-threaded search players.  Each player
+ * makes its own ForkJoinPool in init() and shuts it down in close(), so
+ * the players of games that run at the same time, as in a Tournament,
+ * never take each other's threads.
+ * 
+ * @author Mickie Newman
+ *
+ */
+class SearchPools
+{
+    private SearchPools() {
+    }
+
+    /**
+     * Get the number of search threads to use when a player is not
+     * told: the connect4.threads system property, or one per processor.
+     * @return The number of threads
+     */
+    public static int defaultThreads() {
+        return Integer.getInteger("connect4.threads",
+                                  Runtime.getRuntime().availableProcessors());
+    }
+}
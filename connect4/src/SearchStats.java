@@ -0,0 +1,247 @@
+/**
+ * What a player's search did with its time: nodes searched, the depth
+ * it finished, transposition table hits, beta cutoffs and time used.
+ *
+ * Every move gets an empty record through Arbitrator.getStats().  The
+ * player adds to it while it searches (SearchEngine and EndgameSolver
+ * do this by themselves), PlayerRunner adds the time used when the
+ * move is done, and the records of many moves can be added up to see
+ * what a player did over a game or a match.  Reporting is optional; a
+ * player that reports nothing leaves the record empty.
+ *
+ * The methods are synchronized so that players that search on several
+ * threads can report from all of them.  They are meant to be called
+ * once per search, not once per node.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class SearchStats
+{
+    private int moves;
+    private long nodes;
+    private int depth;          // Deepest finished search.
+    private long depthSum;      // Sum of each move's depth.
+    private long ttProbes, ttHits;
+    private long interiorNodes, betaCutoffs;
+    private long nanos;
+
+    /**
+     * Add nodes searched.
+     * @param nodes The number of nodes
+     */
+    public synchronized void addNodes (long nodes) {
+        this.nodes += nodes;
+    }
+
+    /**
+     * Record the depth of a search that finished.  Call it after every
+     * iteration; the deepest one counts.
+     * @param depth The depth searched
+     */
+    public synchronized void setDepth (int depth) {
+        this.depth = Math.max(this.depth,depth);
+    }
+
+    /**
+     * Add transposition table probes.
+     * @param probes The number of probes
+     * @param hits The number of probes that found their position
+     */
+    public synchronized void addTTProbes (long probes, long hits) {
+        this.ttProbes += probes;
+        this.ttHits += hits;
+    }
+
+    /**
+     * Add beta cutoffs.
+     * @param cutoffs The number of interior nodes that cut off
+     * @param interiorNodes The number of interior nodes searched
+     */
+    public synchronized void addCutoffs (long cutoffs, long interiorNodes) {
+        this.betaCutoffs += cutoffs;
+        this.interiorNodes += interiorNodes;
+    }
+
+    /**
+     * Finish the record of one move.  Called by PlayerRunner.
+     * @param nanos The time the move took
+     */
+    public synchronized void endMove (long nanos) {
+        this.moves = 1;
+        this.depthSum = depth;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Add another record to this one, such as a move to a game total.
+     * @param that The record to add
+     */
+    public void add (SearchStats that) {
+        // Copy first so that the two locks are never held together.
+        SearchStats s = that.copy();
+        synchronized (this) {
+            moves += s.moves;
+            nodes += s.nodes;
+            depth = Math.max(depth,s.depth);
+            depthSum += s.depthSum;
+            ttProbes += s.ttProbes;
+            ttHits += s.ttHits;
+            interiorNodes += s.interiorNodes;
+            betaCutoffs += s.betaCutoffs;
+            nanos += s.nanos;
+        }
+    }
+
+    private synchronized SearchStats copy() {
+        SearchStats s = new SearchStats();
+        s.moves = moves;
+        s.nodes = nodes;
+        s.depth = depth;
+        s.depthSum = depthSum;
+        s.ttProbes = ttProbes;
+        s.ttHits = ttHits;
+        s.interiorNodes = interiorNodes;
+        s.betaCutoffs = betaCutoffs;
+        s.nanos = nanos;
+        return s;
+    }
+
+    /**
+     * Check if the player reported anything.
+     * @return True if no nodes or depth were reported
+     */
+    public synchronized boolean isEmpty() {
+        return nodes == 0 && depth == 0;
+    }
+
+    /**
+     * Get the number of moves recorded.
+     * @return 1 for one move, or the number of moves added up
+     */
+    public synchronized int getMoves() {
+        return moves;
+    }
+
+    /**
+     * Get the number of nodes searched.
+     * @return The node count
+     */
+    public synchronized long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the depth of the deepest search that finished.
+     * @return The depth, or 0 if none was reported
+     */
+    public synchronized int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the average over the moves of the depth each one finished.
+     * @return The average depth
+     */
+    public synchronized double getAverageDepth() {
+        return moves == 0 ? depth : (double) depthSum / moves;
+    }
+
+    /**
+     * Get the fraction of transposition table probes that hit.
+     * @return The hit rate, 0 to 1
+     */
+    public synchronized double getTTHitRate() {
+        return ttProbes == 0 ? 0 : (double) ttHits / ttProbes;
+    }
+
+    /**
+     * Get the number of transposition table probes.
+     * @return The probe count
+     */
+    public synchronized long getTTProbes() {
+        return ttProbes;
+    }
+
+    /**
+     * Get the number of transposition table probes that hit.
+     * @return The hit count
+     */
+    public synchronized long getTTHits() {
+        return ttHits;
+    }
+
+    /**
+     * Get the fraction of interior nodes that ended with a beta cutoff.
+     * @return The cutoff rate, 0 to 1
+     */
+    public synchronized double getCutoffRate() {
+        return interiorNodes == 0 ? 0 : (double) betaCutoffs / interiorNodes;
+    }
+
+    /**
+     * Get the number of interior nodes that cut off.
+     * @return The cutoff count
+     */
+    public synchronized long getBetaCutoffs() {
+        return betaCutoffs;
+    }
+
+    /**
+     * Get the number of interior nodes searched.
+     * @return The node count
+     */
+    public synchronized long getInteriorNodes() {
+        return interiorNodes;
+    }
+
+    /**
+     * Get the time used.
+     * @return The time in milliseconds
+     */
+    public synchronized double getMillis() {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Get the search speed.
+     * @return Nodes per second of time used
+     */
+    public synchronized double getNodesPerSecond() {
+        return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+    }
+
+    /**
+     * Summarize the record on one line, such as for a status bar.
+     * @return The summary
+     */
+    public synchronized String toString() {
+        StringBuilder s = new StringBuilder();
+        if (moves > 1) {
+            s.append(moves).append(" moves, ");
+            s.append(String.format("depth %.1f", getAverageDepth()));
+        } else {
+            s.append("depth ").append(depth);
+        }
+        s.append(", ").append(count(nodes)).append(" nodes");
+        s.append(", ").append(count((long) getNodesPerSecond())).append(" nodes/sec");
+        if (ttProbes > 0) {
+            s.append(String.format(", TT hits %.0f%%", 100 * getTTHitRate()));
+        }
+        if (interiorNodes > 0) {
+            s.append(String.format(", cutoffs %.0f%%", 100 * getCutoffRate()));
+        }
+        s.append(String.format(", %.0f ms", getMillis() / Math.max(1,moves)));
+        if (moves > 1) {
+            s.append("/move");
+        }
+        return s.toString();
+    }
+
+    // A count in k or M if it is large.
+    private static String count (long n) {
+        if (n >= 10000000) return (n / 1000000) + "M";
+        if (n >= 10000) return (n / 1000) + "k";
+        return Long.toString(n);
+    }
+}
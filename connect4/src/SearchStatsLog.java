@@ -0,0 +1,134 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Writes what the players reported through SearchStats, one record per
+ * move, so that a match can be looked at after it is over.
+ *
+ * There are two formats.  CSV has a header line and then one line per
+ * move, with the game number on every line.  JSON has one object per
+ * line for each game, with the players, the winner and an array of its
+ * moves, so that a file can be read a game at a time.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class SearchStatsLog
+{
+    private static final String CSV_HEADER =
+        "game,move,player,name,col,depth,nodes,tt_probes,tt_hits,"
+        + "beta_cutoffs,interior_nodes,msec,nodes_per_sec";
+
+    private final PrintStream out;
+    private final boolean json;
+    private final StringBuilder gameMoves = new StringBuilder();   // JSON moves so far.
+
+    /**
+     * Create a log that writes to a stream.
+     * @param out Where to write
+     * @param json True for JSON, false for CSV
+     */
+    public SearchStatsLog (PrintStream out, boolean json) {
+        this.out = out;
+        this.json = json;
+        if (!json) {
+            out.println(CSV_HEADER);
+        }
+    }
+
+    /**
+     * Create a log that writes to a file, as JSON if the file name ends
+     * in ".json" and as CSV otherwise.
+     * @param file The file name
+     * @return The log
+     * @throws IOException If the file cannot be created
+     */
+    public static SearchStatsLog open (String file) throws IOException {
+        PrintStream out = new PrintStream(new FileOutputStream(file),false,"UTF-8");
+        return new SearchStatsLog(out,file.endsWith(".json"));
+    }
+
+    /**
+     * Record a move.
+     * @param game The game number, from 1
+     * @param move The move number in the game, from 1
+     * @param id The player who moved
+     * @param name The player's name
+     * @param col The column the player chose, which may not be valid
+     * @param stats What the player reported for the move
+     */
+    public void move (int game, int move, int id, String name, int col, SearchStats stats) {
+        if (json) {
+            if (gameMoves.length() > 0) gameMoves.append(',');
+            gameMoves.append("{\"move\":").append(move)
+                .append(",\"player\":").append(id)
+                .append(",\"col\":").append(col)
+                .append(",\"depth\":").append(stats.getDepth())
+                .append(",\"nodes\":").append(stats.getNodes())
+                .append(",\"tt_probes\":").append(stats.getTTProbes())
+                .append(",\"tt_hits\":").append(stats.getTTHits())
+                .append(",\"beta_cutoffs\":").append(stats.getBetaCutoffs())
+                .append(",\"interior_nodes\":").append(stats.getInteriorNodes())
+                .append(",\"msec\":").append(String.format(Locale.ROOT,"%.3f",stats.getMillis()))
+                .append(",\"nodes_per_sec\":").append(Math.round(stats.getNodesPerSecond()))
+                .append('}');
+        } else {
+            out.println(game + "," + move + "," + id + "," + csv(name) + "," + col
+                        + "," + stats.getDepth() + "," + stats.getNodes()
+                        + "," + stats.getTTProbes() + "," + stats.getTTHits()
+                        + "," + stats.getBetaCutoffs() + "," + stats.getInteriorNodes()
+                        + "," + String.format(Locale.ROOT,"%.3f",stats.getMillis())
+                        + "," + Math.round(stats.getNodesPerSecond()));
+        }
+    }
+
+    /**
+     * Record the end of a game.  For JSON this writes the game's line.
+     * @param game The game number
+     * @param p1Name Player #1's name
+     * @param p2Name Player #2's name
+     * @param winner The id of the winner, or 0 for a draw
+     */
+    public void endGame (int game, String p1Name, String p2Name, int winner) {
+        if (json) {
+            out.println("{\"game\":" + game + ",\"p1\":" + json(p1Name)
+                        + ",\"p2\":" + json(p2Name) + ",\"winner\":" + winner
+                        + ",\"moves\":[" + gameMoves + "]}");
+            gameMoves.setLength(0);
+        }
+        out.flush();
+    }
+
+    /**
+     * Close the stream.
+     */
+    public void close() {
+        out.close();
+    }
+
+    // A CSV field, quoted if it needs to be.
+    private static String csv (String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+            return s;
+        }
+        return "\"" + s.replace("\"","\"\"") + "\"";
+    }
+
+    // A JSON string.
+    private static String json (String s) {
+        StringBuilder b = new StringBuilder("\"");
+        for (int i=0; i<s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                b.append('\\').append(c);
+            } else if (c < 0x20) {
+                b.append(String.format(Locale.ROOT,"\\u%04x",(int) c));
+            } else {
+                b.append(c);
+            }
+        }
+        return b.append('"').toString();
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A transposition table that many search threads can use at once
+ * without locking.  Each entry is two longs in an AtomicLongArray: the
+ * data word, and the key XORed with the data word.  A reader checks
+ * that the two still XOR to the key it is looking for, so an entry
+ * that was half overwritten by another thread reads as a miss instead
+ * of as another position's value.
+ *
+ * The table does not count probes and hits, because every thread
+ * would write the same counters at every node; getProbes() and
+ * getHits() return 0.  SearchEngine counts them for each thread.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class SharedTranspositionTable extends TranspositionTable
+{
+    private final AtomicLongArray entries;
+
+    /**
+     * Create a table that uses about the given amount of memory.  The
+     * number of entries is rounded down to a power of two.
+     * @param megabytes Memory to use, at least 1
+     */
+    public SharedTranspositionTable (int megabytes) {
+        super(megabytes,false);
+        this.entries = new AtomicLongArray(2*size());
+    }
+
+    @Override
+    public void clear() {
+        for (int i=0; i<entries.length(); i++) {
+            entries.setOpaque(i,0);
+        }
+    }
+
+    @Override
+    public long probe (long key) {
+        int i = 2*((int) key & mask);
+        long d = entries.getOpaque(i+1);
+        if (d == MISS || (entries.getOpaque(i) ^ d) != key) {
+            return MISS;
+        }
+        return d;
+    }
+
+    @Override
+    public void store (long key, int depth, int bound, int value, int move) {
+        int i = 2*((int) key & mask);
+        int generation = currentGeneration();
+        long d = entries.getOpaque(i+1);
+        if (!replaces(d,(entries.getOpaque(i) ^ d) == key,depth,bound,generation)) {
+            return;
+        }
+        d = pack(depth,bound,value,move,generation);
+        entries.setOpaque(i,key ^ d);
+        entries.setOpaque(i+1,d);
+    }
+}
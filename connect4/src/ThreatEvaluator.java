@@ -0,0 +1,183 @@
+/**
+ * Values a position by the windows of four cells each player can still
+ * fill: a connect 4 is worth FOUR, a window with three of a player's
+ * pieces and an empty cell (a threat) THREE, and one with two pieces
+ * and two empty cells TWO.  Windows that hold pieces of both players
+ * are worth nothing to either.
+ *
+ * On boards with an even number of rows, threats are also valued by the
+ * row of their empty cell.  If the board fills up column by column, the
+ * player who moves when an even number of cells are full gets the odd
+ * rows (counting the bottom row as 1) and the other player the even
+ * rows, so each player's threats on their own rows are worth PARITY
+ * more.
+ *
+ * Every window is listed once, when the evaluator is made, along with
+ * the windows through each cell.  The counts are updated by move() and
+ * unmove() in time proportional to the windows through the cell, so
+ * nothing is scanned or allocated while searching.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class ThreatEvaluator implements Evaluator
+{
+    static final int FOUR = 256;
+    static final int THREE = 8;
+    static final int TWO = 1;
+    static final int PARITY = 8;
+
+    // The value of a window by the number of pieces in it, when they
+    // all belong to one player.
+    private static final int[] WEIGHTS = { 0, 0, TWO, THREE, FOUR };
+
+    private final int rows;
+    private final boolean parity;       // True if rows is even.
+    private final int[] windowCells;    // The 4 cells of each window.
+    private final int[] cellStart;      // The windows through cell i are
+    private final int[] cellWindows;    // cellWindows[cellStart[i]..cellStart[i+1]).
+    private final int[] owner;          // The id in each cell, or 0.
+    private final int[][] counts;       // [id][window] pieces in the window.
+
+    // Totals over all windows, indexed by player id.
+    private final int[] value = new int [3];
+    private final int[] oddThreats = new int [3];
+    private final int[] evenThreats = new int [3];
+    private int pieces;
+
+    /**
+     * Create an evaluator for boards of the given size.  Cells are
+     * numbered col*rows + row, with row 0 at the bottom.
+     * @param rows Number of rows
+     * @param cols Number of columns
+     */
+    public ThreatEvaluator (int rows, int cols) {
+        this.rows = rows;
+        this.parity = (rows % 2) == 0;
+        int cells = rows*cols;
+
+        // Every run of four in a row, in each of the four directions.
+        int[][] dirs = { {1,0}, {0,1}, {1,1}, {-1,1} };
+        int[] w = new int [4*4*cells];
+        int n = 0;
+        int[] perCell = new int [cells];
+        for (int[] d : dirs) {
+            for (int row=0; row<rows; row++) {
+                for (int col=0; col<cols; col++) {
+                    int endRow = row + 3*d[0], endCol = col + 3*d[1];
+                    if (endRow < 0 || endRow >= rows || endCol >= cols) continue;
+                    for (int k=0; k<4; k++) {
+                        int cell = (col + k*d[1])*rows + row + k*d[0];
+                        w[4*n+k] = cell;
+                        perCell[cell]++;
+                    }
+                    n++;
+                }
+            }
+        }
+        this.windowCells = java.util.Arrays.copyOf(w,4*n);
+
+        this.cellStart = new int [cells+1];
+        for (int i=0; i<cells; i++) {
+            cellStart[i+1] = cellStart[i] + perCell[i];
+        }
+        this.cellWindows = new int [cellStart[cells]];
+        int[] next = java.util.Arrays.copyOf(cellStart,cells);
+        for (int i=0; i<4*n; i++) {
+            cellWindows[next[windowCells[i]]++] = i/4;
+        }
+
+        this.owner = new int [cells];
+        this.counts = new int [3][n];
+    }
+
+    /**
+     * Get the number of windows of four on the board.
+     * @return The number of windows
+     */
+    public int numWindows() {
+        return counts[1].length;
+    }
+
+    public void reset (Connect4Board board) {
+        java.util.Arrays.fill(owner,0);
+        java.util.Arrays.fill(counts[1],0);
+        java.util.Arrays.fill(counts[2],0);
+        for (int id=1; id<=2; id++) {
+            value[id] = oddThreats[id] = evenThreats[id] = 0;
+        }
+        pieces = 0;
+        for (int col=0; col<board.numCols(); col++) {
+            int height = board.numOccupiedCells(col);
+            for (int row=0; row<height; row++) {
+                move(row,col,board.get(row,col));
+            }
+        }
+    }
+
+    public void move (int row, int col, int id) {
+        int cell = col*rows + row;
+        int start = cellStart[cell], end = cellStart[cell+1];
+        for (int i=start; i<end; i++) {
+            update(cellWindows[i],-1);
+        }
+        owner[cell] = id;
+        pieces++;
+        int[] c = counts[id];
+        for (int i=start; i<end; i++) {
+            int w = cellWindows[i];
+            c[w]++;
+            update(w,1);
+        }
+    }
+
+    public void unmove (int row, int col, int id) {
+        int cell = col*rows + row;
+        int start = cellStart[cell], end = cellStart[cell+1];
+        for (int i=start; i<end; i++) {
+            update(cellWindows[i],-1);
+        }
+        owner[cell] = 0;
+        pieces--;
+        int[] c = counts[id];
+        for (int i=start; i<end; i++) {
+            int w = cellWindows[i];
+            c[w]--;
+            update(w,1);
+        }
+    }
+
+    public int evaluate (Connect4Board board, int id) {
+        int opp = 3-id;
+        int v = value[id] - value[opp];
+        if (parity) {
+            if ((pieces % 2) == 0) {
+                // Player id gets the odd rows.
+                v += PARITY * (oddThreats[id] - evenThreats[opp]);
+            } else {
+                v += PARITY * (evenThreats[id] - oddThreats[opp]);
+            }
+        }
+        return v;
+    }
+
+    // Add (sign 1) or remove (sign -1) what a window is worth.
+    private void update (int w, int sign) {
+        int c1 = counts[1][w], c2 = counts[2][w];
+        if (c1 > 0 && c2 > 0) return;
+        int id = c1 > 0 ? 1 : 2;
+        int c = c1 + c2;
+        value[id] += sign * WEIGHTS[c];
+        if (c == 3) {
+            for (int k=4*w; k<4*w+4; k++) {
+                int cell = windowCells[k];
+                if (owner[cell] == 0) {
+                    // Rows count from 1 at the bottom, so row 0 is odd.
+                    if (((cell % rows) & 1) == 0) oddThreats[id] += sign;
+                    else evenThreats[id] += sign;
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Decides when an iterative deepening search should stop starting new
+ * iterations.  An iteration that cannot finish before time is up is
+ * thrown away, so it is better not to start it at all.
+ *
+ * Two deadlines come from the time allowed per move.  No iteration
+ * starts after the soft deadline, and none starts unless it is expected
+ * to finish before the hard deadline.  The time of the next iteration is
+ * predicted from the last one times the effective branching factor: the
+ * ratio of the last two iteration times.
+ *
+ * The manager also keeps track of the depth reached per move and of how
+ * much time went into iterations that did not finish.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class TimeManager
+{
+    // Deadlines as fractions of the time per move.
+    private static final double SOFT_FRACTION = 0.6;
+    private static final double HARD_FRACTION = 1.1;
+
+    // Branching factor to assume until two iterations have finished,
+    // and the largest one to believe.
+    private static final double DEFAULT_EBF = 4;
+    private static final double MAX_EBF = 16;
+
+    private final long softNanos, hardNanos;
+
+    // The current move.
+    private long moveStart;
+    private long iterationStart;
+    private boolean iterationRunning;
+    private int iterations;
+    private long lastNanos, prevNanos;
+
+    // Every move so far.
+    private int moves;
+    private long depthSum;
+    private long moveNanos, abandonedNanos;
+
+    /**
+     * Create a time manager.
+     * @param msecPerMove The time allowed per move, as given to Player.init()
+     */
+    public TimeManager (int msecPerMove) {
+        this.softNanos = (long) (msecPerMove * SOFT_FRACTION * 1e6);
+        this.hardNanos = (long) (msecPerMove * HARD_FRACTION * 1e6);
+    }
+
+    /**
+     * Start timing a move.  Call this as soon as calcMove() is called.
+     */
+    public void startMove() {
+        moveStart = System.nanoTime();
+        iterationRunning = false;
+        iterations = 0;
+        lastNanos = prevNanos = 0;
+    }
+
+    /**
+     * Decide whether to start the next iteration.  The first iteration
+     * is always started so that there is a move to play.
+     * @return True if the iteration should be searched; the time it
+     *         takes is measured from now
+     */
+    public boolean startIteration() {
+        long now = System.nanoTime();
+        long elapsed = now - moveStart;
+        if (iterations > 0
+            && (elapsed >= softNanos || elapsed + predictNextIteration() > hardNanos)) {
+            return false;
+        }
+        iterationStart = now;
+        iterationRunning = true;
+        return true;
+    }
+
+    /**
+     * Record that the iteration started by startIteration() finished.
+     */
+    public void iterationDone() {
+        prevNanos = lastNanos;
+        lastNanos = System.nanoTime() - iterationStart;
+        iterationRunning = false;
+        iterations++;
+    }
+
+    /**
+     * Finish timing a move.  Call this however calcMove() ends, even
+     * when time runs out.
+     * @param depth The depth of the deepest iteration that finished
+     */
+    public void endMove (int depth) {
+        long now = System.nanoTime();
+        moves++;
+        depthSum += depth;
+        moveNanos += now - moveStart;
+        if (iterationRunning) {
+            abandonedNanos += now - iterationStart;
+            iterationRunning = false;
+        }
+    }
+
+    /**
+     * Get the effective branching factor of the current move: how many
+     * times longer the last iteration took than the one before it.
+     * @return The branching factor, or a default before two iterations
+     */
+    public double getBranchingFactor() {
+        if (prevNanos <= 0) {
+            return DEFAULT_EBF;
+        }
+        return Math.max(1,Math.min(MAX_EBF,(double) lastNanos / prevNanos));
+    }
+
+    /**
+     * Predict how long the next iteration of the current move will take.
+     * @return The predicted time in nanoseconds
+     */
+    public long predictNextIteration() {
+        return (long) (lastNanos * getBranchingFactor());
+    }
+
+    /**
+     * Get the average depth of the deepest finished iteration per move.
+     * @return The average depth, or 0 before the first move
+     */
+    public double getAverageDepth() {
+        return moves == 0 ? 0 : (double) depthSum / moves;
+    }
+
+    /**
+     * Get the fraction of the time spent on moves that went into
+     * iterations that did not finish.
+     * @return The abandoned fraction, 0 to 1
+     */
+    public double getAbandonedFraction() {
+        return moveNanos == 0 ? 0 : (double) abandonedNanos / moveNanos;
+    }
+}
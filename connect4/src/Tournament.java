@@ -0,0 +1,360 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A round-robin tournament between any number of players.  Every pair
+ * of players meets in both seats, always with match play, so each random
+ * starting board is played once from each side.  Matches run at the
+ * same time on a fixed number of worker threads, at most one game per
+ * free processor (or fewer, for players that search with several
+ * threads), so no player gets less time to think than it would alone.
+ *
+ * At the end each player gets a score (a win is 1 point, a draw 1/2)
+ * and an Elo rating fitted to all the results, averaging 1500.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class Tournament
+{
+	private final String[] classNames;
+	private final int rows, cols;
+	private final String game;
+	private final int msecPerMove;
+	private final int gamesPerPairing;
+	private final int numSeedMoves;
+	private final int workers;
+
+	// Results, guarded by this.  [i][j] counts games between player
+	// i and player j, from player i's side.
+	private final int[][] games;
+	private final int[][] halfPoints;
+	private final int[][] wins;
+	private final int[] forfeits;
+	private final String[] names;
+
+	/**
+	 * @param classNames the player classes, at least 2
+	 * @param rows number of rows
+	 * @param cols number of columns
+	 * @param game "first" or "most"
+	 * @param msecPerMove time allowed per move
+	 * @param gamesPerPairing games each player plays as player #1 against
+	 *        each other player, even because of match play
+	 * @param numRandMoves random moves at the start of each game
+	 * @param threadsPerGame processors one game needs, more than 1 for
+	 *        players that search with several threads
+	 */
+	public Tournament(List<String> classNames, int rows, int cols, String game,
+			int msecPerMove, int gamesPerPairing, int numRandMoves, int threadsPerGame)
+	{
+		assert (classNames.size() >= 2);
+		assert (gamesPerPairing > 0 && (gamesPerPairing % 2) == 0);
+		assert (threadsPerGame > 0);
+
+		this.classNames = classNames.toArray(new String[0]);
+		this.rows = rows;
+		this.cols = cols;
+		this.game = game;
+		this.msecPerMove = msecPerMove;
+		this.gamesPerPairing = gamesPerPairing;
+		this.numSeedMoves = numRandMoves;
+		this.workers = Math.max(1, Runtime.getRuntime().availableProcessors() / threadsPerGame);
+
+		int n = this.classNames.length;
+		this.games = new int[n][n];
+		this.halfPoints = new int[n][n];
+		this.wins = new int[n][n];
+		this.forfeits = new int[n];
+		this.names = this.classNames.clone();
+	}
+
+	/**
+	 * Get the number of games that are played at the same time.
+	 *
+	 * @return the size of the worker pool
+	 */
+	public int getWorkers()
+	{
+		return workers;
+	}
+
+	/**
+	 * Play every match.  Each pair of games on one starting board is a
+	 * separate job for the worker pool, so the load stays even however
+	 * many games a pairing has.
+	 *
+	 * @param seed random seed for the starting boards
+	 * @param log where to print each result as it comes in, or null
+	 * @throws ReflectiveOperationException if a player cannot be created
+	 * @throws InterruptedException if interrupted while waiting for the games
+	 */
+	public void run(long seed, PrintStream log)
+		throws ReflectiveOperationException, InterruptedException
+	{
+		Random rand = new Random(seed);
+		List<Future<?>> jobs = new ArrayList<Future<?>>();
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			for (int i = 0; i < classNames.length; i++) {
+				for (int j = 0; j < classNames.length; j++) {
+					if (i == j) continue;
+					for (int g = 0; g < gamesPerPairing; g += 2) {
+						final int p1 = i, p2 = j;
+						final long boardSeed = rand.nextLong();
+						jobs.add(pool.submit(() -> {
+							playPair(p1, p2, boardSeed, log);
+							return null;
+						}));
+					}
+				}
+			}
+			for (Future<?> job : jobs) {
+				try {
+					job.get();
+				}
+				catch (ExecutionException e) {
+					if (e.getCause() instanceof ReflectiveOperationException)
+						throw (ReflectiveOperationException) e.getCause();
+					if (e.getCause() instanceof RuntimeException)
+						throw (RuntimeException) e.getCause();
+					throw new Error(e.getCause());
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// Play one starting board from both sides.
+	private void playPair(int p1, int p2, long seed, PrintStream log)
+		throws ReflectiveOperationException
+	{
+		MatchEngine match = new MatchEngine(rows, cols, game, msecPerMove, 2,
+				numSeedMoves, true, classNames[p1], classNames[p2]);
+		match.setSeed(seed);
+		for (int g = 0; g < 2; g++) {
+			int winner = match.playGame();
+			synchronized (this) {
+				record(p1, p2, winner == 1 ? 2 : winner == 2 ? 0 : 1);
+				record(p2, p1, winner == 2 ? 2 : winner == 1 ? 0 : 1);
+				forfeits[p1] = forfeits[p1] + (g == 1 ? match.getP1Forfeits() : 0);
+				forfeits[p2] = forfeits[p2] + (g == 1 ? match.getP2Forfeits() : 0);
+				names[p1] = match.getP1Name();
+				names[p2] = match.getP2Name();
+				if (log != null) {
+					log.println(names[p1] + " vs " + names[p2] + ": "
+							+ (winner == 0 ? "draw" : names[winner == 1 ? p1 : p2] + " wins"));
+				}
+			}
+		}
+	}
+
+	private void record(int i, int j, int half)
+	{
+		games[i][j]++;
+		halfPoints[i][j] += half;
+		if (half == 2) wins[i][j]++;
+	}
+
+	/**
+	 * Fit Elo ratings to the results: find the ratings for which every
+	 * player's expected score against the field equals its actual score.
+	 * A player that won or lost every game has no finite rating, so
+	 * ratings are kept within 1200 of the average.
+	 *
+	 * @return the rating of each player, in the order they were given
+	 */
+	public synchronized double[] eloRatings()
+	{
+		int n = classNames.length;
+		double[] elo = new double[n];
+		Arrays.fill(elo, 1500);
+		for (int iter = 0; iter < 2000; iter++) {
+			double[] next = elo.clone();
+			for (int i = 0; i < n; i++) {
+				double actual = 0, expected = 0;
+				int played = 0;
+				for (int j = 0; j < n; j++) {
+					if (games[i][j] == 0) continue;
+					actual += halfPoints[i][j] / 2.0;
+					expected += games[i][j] / (1 + Math.pow(10, (elo[j] - elo[i]) / 400));
+					played += games[i][j];
+				}
+				if (played > 0)
+					next[i] += 400 * (actual - expected) / played;
+			}
+			double mean = 0;
+			for (double e : next) mean += e / n;
+			for (int i = 0; i < n; i++)
+				elo[i] = Math.max(300, Math.min(2700, next[i] - mean + 1500));
+		}
+		return elo;
+	}
+
+	/**
+	 * Print the standings, best score first.
+	 *
+	 * @param out where to print them
+	 */
+	public synchronized void printStandings(PrintStream out)
+	{
+		int n = classNames.length;
+		double[] elo = eloRatings();
+		Integer[] order = new Integer[n];
+		int[] points = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+			for (int j = 0; j < n; j++) points[i] += halfPoints[i][j];
+		}
+		Arrays.sort(order, (a, b) -> points[a] != points[b]
+				? points[b] - points[a] : Double.compare(elo[b], elo[a]));
+		int width = "player".length();
+		for (int i = 0; i < n; i++)
+			width = Math.max(width, label(i).length());
+
+		out.printf("%-4s %-" + width + "s %6s %5s %5s %5s %5s %7s %6s%n",
+				"rank", "player", "games", "won", "drawn", "lost", "forf", "points", "elo");
+		for (int r = 0; r < n; r++) {
+			int i = order[r];
+			int played = 0, won = 0, drawn = 0;
+			for (int j = 0; j < n; j++) {
+				played += games[i][j];
+				won += wins[i][j];
+				drawn += halfPoints[i][j] - 2 * wins[i][j];
+			}
+			out.printf("%-4d %-" + width + "s %6d %5d %5d %5d %5d %7.1f %6.0f%n",
+					r + 1, label(i), played, won, drawn,
+					played - won - drawn, forfeits[i], points[i] / 2.0, elo[i]);
+		}
+	}
+
+	private String label(int i)
+	{
+		return names[i] + " [" + classNames[i] + "]";
+	}
+
+	// Print program usage and exit.
+	private static void usage()
+	{
+		System.err.println();
+		System.err.println("usage: Tournament [options] player1 player2 ...");
+		System.err.println();
+		System.err.println("    r - Number of rows, >= 4.");
+		System.err.println("    c - Number of columns, >= 4.");
+		System.err.println("    n - Games each player plays as player #1 against each other, even.");
+		System.err.println("    t - Time allowed per move (msec).");
+		System.err.println("   nr - Number of random moves, even, >=0, <=rows*cols.");
+		System.err.println(" game - Which game to play:");
+		System.err.println("        first - First Connect-4 wins.");
+		System.err.println("         most - Most Connect-4s wins.");
+		System.err.println("  tpg - Processors each game needs (for multi-threaded players).");
+		System.err.println(" seed - Random seed for the random moves.");
+		System.err.println("    q - Quiet: only print the standings.");
+		System.err.println();
+		System.err.println("The player classes must be in CLASSPATH.");
+		System.err.println();
+		System.exit(1);
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		int rows = 6;
+		int cols = 7;
+		String game = "most";
+		int msec = 250;
+		int ngames = 2;
+		int numRandMoves = 0;
+		int threadsPerGame = 1;
+		long seed = System.nanoTime();
+		boolean quiet = false;
+		List<String> players = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-r")) {
+				if (++i == args.length) usage();
+				rows = Integer.parseInt(args[i]);
+				if (rows < 4) usage();
+				continue;
+			}
+			if (args[i].equals("-c")) {
+				if (++i == args.length) usage();
+				cols = Integer.parseInt(args[i]);
+				if (cols < 4) usage();
+				continue;
+			}
+			if (args[i].equals("-nr")) {
+				if (++i == args.length) usage();
+				numRandMoves = Integer.parseInt(args[i]);
+				if (numRandMoves < 0) usage();
+				if ((numRandMoves % 2) == 1) usage();
+				continue;
+			}
+			if (args[i].equals("-game")) {
+				if (++i == args.length) usage();
+				game = args[i];
+				if (!game.equals("first") && !game.equals("most")) usage();
+				continue;
+			}
+			if (args[i].equals("-t")) {
+				if (++i == args.length) usage();
+				msec = Integer.parseInt(args[i]);
+				if (msec < 0) usage();
+				continue;
+			}
+			if (args[i].equals("-n")) {
+				if (++i == args.length) usage();
+				ngames = Integer.parseInt(args[i]);
+				if (ngames < 2 || (ngames % 2) == 1) usage();
+				continue;
+			}
+			if (args[i].equals("-tpg")) {
+				if (++i == args.length) usage();
+				threadsPerGame = Integer.parseInt(args[i]);
+				if (threadsPerGame < 1) usage();
+				continue;
+			}
+			if (args[i].equals("-seed")) {
+				if (++i == args.length) usage();
+				seed = Long.parseLong(args[i]);
+				continue;
+			}
+			if (args[i].equals("-q")) {
+				quiet = true;
+				continue;
+			}
+			if (args[i].startsWith("-")) usage();
+			players.add(args[i]);
+		}
+		if (numRandMoves > rows * cols) usage();
+		if (players.size() < 2) usage();
+
+		Tournament t = new Tournament(players, rows, cols, game, msec, ngames,
+				numRandMoves, threadsPerGame);
+		System.out.println(players.size() + " players, " + t.getWorkers()
+				+ " games at a time, seed " + seed);
+		long startTime = System.currentTimeMillis();
+		try {
+			t.run(seed, quiet ? null : System.out);
+		}
+		catch (ReflectiveOperationException | ClassCastException e) {
+			System.err.println("Cannot load the players: " + e);
+			System.exit(1);
+		}
+		long elapsed = System.currentTimeMillis() - startTime;
+		System.out.println();
+		t.printStandings(System.out);
+		System.out.println("finished in " + elapsed + " msec");
+
+		// Players that ignored their time limit may still be running.
+		System.exit(0);
+	}
+}
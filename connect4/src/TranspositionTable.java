@@ -0,0 +1,221 @@
+/**
+ * A fixed-size transposition table for game tree searches, keyed by
+ * Connect4Board.key().  Entries live in two parallel long arrays (the
+ * full key and a packed data word) so the table makes no allocations
+ * after construction.
+ *
+ * Each data word holds the search value, the remaining depth it was
+ * searched to, whether the value is exact or only a lower/upper bound,
+ * the best move found and the search generation that stored it.  An
+ * entry is replaced by a search of at least the same depth, or by any
+ * entry once it is left over from an earlier call to newSearch().  A
+ * shallower search of the same position only replaces it with an exact
+ * value.
+ *
+ * Values are stored as given; it is up to the search to store them
+ * from a consistent point of view.
+ *
+ * @author Mickie Newman
+ *
+ */
+public class TranspositionTable
+{
+    // Bound types.  None of them is 0 so a stored data word is never 0.
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    // Returned by probe() when the position is not in the table.
+    public static final long MISS = 0;
+
+    // Bytes used per entry: one key and one data word.
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    protected final int mask;
+    private int generation;
+    protected long probes, hits;
+
+    /**
+     * Create a table that uses about the given amount of memory.  The
+     * number of entries is rounded down to a power of two.
+     * @param megabytes Memory to use, at least 1
+     */
+    public TranspositionTable (int megabytes) {
+        this(megabytes,true);
+    }
+
+    /**
+     * Size the table, and allocate the arrays unless a subclass keeps
+     * its entries somewhere else.
+     * @param megabytes Memory to use, at least 1
+     * @param allocate True to allocate the key and data arrays
+     */
+    protected TranspositionTable (int megabytes, boolean allocate) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("megabytes="+megabytes);
+        }
+        long n = Long.highestOneBit((long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        n = Math.min(n,1 << 30);
+        this.keys = allocate ? new long [(int) n] : null;
+        this.data = allocate ? new long [(int) n] : null;
+        this.mask = (int) n - 1;
+    }
+
+    /**
+     * Get the number of entries in the table.
+     * @return The number of entries
+     */
+    public int size() {
+        return mask + 1;
+    }
+
+    /**
+     * Start a new search.  Entries stored by earlier searches are kept
+     * for probing but may be replaced by anything.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Get the generation of the current search, for subclasses that
+     * store entries themselves.
+     * @return The generation, 0-255
+     */
+    protected int currentGeneration() {
+        return generation;
+    }
+
+    /**
+     * Remove all entries and reset the counters.
+     */
+    public void clear() {
+        java.util.Arrays.fill(keys,0);
+        java.util.Arrays.fill(data,0);
+        probes = hits = 0;
+    }
+
+    /**
+     * Look up a position.
+     * @param key The position key
+     * @return The packed entry for the position, or MISS.  Use the
+     *         static value(), depth(), bound() and move() methods to
+     *         unpack it.
+     */
+    public long probe (long key) {
+        int i = (int) key & mask;
+        probes++;
+        long d = data[i];
+        if (d == MISS || keys[i] != key) {
+            return MISS;
+        }
+        hits++;
+        return d;
+    }
+
+    /**
+     * Record the result of searching a position.
+     * @param key The position key
+     * @param depth The remaining depth that was searched, 0-255
+     * @param bound EXACT, LOWER or UPPER
+     * @param value The value found
+     * @param move The best move found, or -1 if there is none
+     */
+    public void store (long key, int depth, int bound, int value, int move) {
+        int i = (int) key & mask;
+        long d = data[i];
+        if (!replaces(d,keys[i] == key,depth,bound,generation)) {
+            return;
+        }
+        keys[i] = key;
+        data[i] = pack(depth,bound,value,move,generation);
+    }
+
+    /**
+     * Check if a new result may replace an entry.  An entry from the
+     * current search that is deeper than the new result is kept, unless
+     * it is for the same position and the new result is exact.
+     * @param d The data word of the entry, or MISS if the slot is empty
+     * @param sameKey True if the entry is for the same position
+     * @param depth The remaining depth of the new result
+     * @param bound The bound type of the new result
+     * @param generation The current generation
+     * @return True if the entry should be replaced
+     */
+    static boolean replaces (long d, boolean sameKey, int depth, int bound, int generation) {
+        if (d == MISS || generation(d) != generation || depth(d) <= depth) {
+            return true;
+        }
+        return sameKey && bound == EXACT;
+    }
+
+    /**
+     * Get the number of calls to probe() since the table was created
+     * or cleared.
+     * @return The number of probes
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * Get the number of probes that found their position.
+     * @return The number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    // Data word layout, low bits first:
+    //   32 bits value, 8 bits move+1, 8 bits depth, 2 bits bound,
+    //   8 bits generation.
+    static long pack (int depth, int bound, int value, int move, int generation) {
+        return (value & 0xFFFFFFFFL)
+            | ((long) ((move+1) & 0xFF) << 32)
+            | ((long) (depth & 0xFF) << 40)
+            | ((long) bound << 48)
+            | ((long) generation << 50);
+    }
+
+    /**
+     * Unpack the value of a table entry.
+     * @param entry An entry returned by probe()
+     * @return The stored value
+     */
+    public static int value (long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Unpack the best move of a table entry.
+     * @param entry An entry returned by probe()
+     * @return The stored move, or -1 if there was none
+     */
+    public static int move (long entry) {
+        return (int) ((entry >>> 32) & 0xFF) - 1;
+    }
+
+    /**
+     * Unpack the search depth of a table entry.
+     * @param entry An entry returned by probe()
+     * @return The remaining depth the position was searched to
+     */
+    public static int depth (long entry) {
+        return (int) ((entry >>> 40) & 0xFF);
+    }
+
+    /**
+     * Unpack the bound type of a table entry.
+     * @param entry An entry returned by probe()
+     * @return EXACT, LOWER or UPPER
+     */
+    public static int bound (long entry) {
+        return (int) ((entry >>> 48) & 0x3);
+    }
+
+    static int generation (long entry) {
+        return (int) ((entry >>> 50) & 0xFF);
+    }
+}